@@ -0,0 +1,79 @@
+package com.greta.ecommerce.benchmark;
+
+import com.greta.ecommerce.security.JwtService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'authentification d'une requête d'administration : HTTP Basic (décodage de l'en-tête et
+ * vérification du mot de passe, en clair {noop} comme la configuration par défaut ou haché en bcrypt),
+ * ou jeton JWT vérifié à chaque requête (HMAC) ou retrouvé dans le cache des jetons déjà vérifiés.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(
+            "benchmark-secret-of-at-least-32-bytes".getBytes(StandardCharsets.UTF_8));
+
+    private String basicHeader;
+    private PasswordEncoder delegating;
+    private String noopPassword;
+    private String bcryptPassword;
+    private JwtService verifyEachTime;
+    private JwtService cached;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        basicHeader = "Basic " + Base64.getEncoder().encodeToString("admin:admin123".getBytes(StandardCharsets.UTF_8));
+        delegating = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        noopPassword = "{noop}admin123";
+        bcryptPassword = "{bcrypt}" + new BCryptPasswordEncoder().encode("admin123");
+
+        Authentication admin = UsernamePasswordAuthenticationToken.authenticated("admin", null,
+                AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+        verifyEachTime = new JwtService(SECRET, 60, 0);
+        cached = new JwtService(SECRET, 60, 10_000);
+        token = cached.issue(admin);
+        cached.authenticate(token);
+    }
+
+    private String basicPassword() {
+        String credentials = new String(Base64.getDecoder().decode(basicHeader.substring(6)), StandardCharsets.UTF_8);
+        return credentials.substring(credentials.indexOf(':') + 1);
+    }
+
+    @Benchmark
+    public boolean basicNoop() {
+        return delegating.matches(basicPassword(), noopPassword);
+    }
+
+    @Benchmark
+    public boolean basicBcrypt() {
+        return delegating.matches(basicPassword(), bcryptPassword);
+    }
+
+    @Benchmark
+    public Authentication jwtVerifyEachRequest() {
+        return verifyEachTime.authenticate(token);
+    }
+
+    @Benchmark
+    public Authentication jwtCached() {
+        return cached.authenticate(token);
+    }
+}
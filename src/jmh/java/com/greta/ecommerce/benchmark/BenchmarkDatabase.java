@@ -0,0 +1,63 @@
+package com.greta.ecommerce.benchmark;
+
+import com.greta.ecommerce.TestDatabase;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base H2 en mémoire (mode MySQL) migrée comme en production et remplie de données générées.
+ */
+final class BenchmarkDatabase {
+    private static final int BATCH_SIZE = 10_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    static EmbeddedDatabase create() {
+        return TestDatabase.create();
+    }
+
+    static void insertProducts(JdbcTemplate jdbcTemplate, int count) {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{
+                    "Produit " + i,
+                    "Description générée du produit " + i + ", avec un texte d'une longueur réaliste pour la fiche.",
+                    10 + (i % 1000) * 0.5,
+                    1_000_000,
+                    "https://images.example.com/" + i + ".jpg"
+            });
+            if (rows.size() == BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO product (name, description, price, stock, image_url) VALUES (?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    // Commandes de deux lignes chacune, sur les produits 1 à 4 du jeu de données initial
+    static void insertOrders(JdbcTemplate jdbcTemplate, int count) {
+        Long firstId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM orders", Long.class);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Object[]> orders = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> items = new ArrayList<>(2 * BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            long orderId = firstId + i;
+            orders.add(new Object[]{orderId, "client" + (i % 5000) + "@example.com",
+                    Timestamp.valueOf(start.plusSeconds(i)), i % 10 == 0 ? "CANCELLED" : "PENDING"});
+            items.add(new Object[]{orderId, (long) (i % 4) + 1, 1 + i % 3});
+            items.add(new Object[]{orderId, (long) ((i + 1) % 4) + 1, 2});
+            if (orders.size() == BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO orders (id, email, date, status) VALUES (?, ?, ?, ?)", orders);
+                jdbcTemplate.batchUpdate("INSERT INTO order_item (order_id, product_id, quantity) VALUES (?, ?, ?)", items);
+                orders.clear();
+                items.clear();
+            }
+        }
+    }
+}
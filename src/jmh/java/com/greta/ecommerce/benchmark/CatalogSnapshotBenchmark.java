@@ -0,0 +1,68 @@
+package com.greta.ecommerce.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.cache.CatalogSnapshots;
+import com.greta.ecommerce.entity.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Coût CPU d'un GET /api/products complet : sérialisation Jackson (et compression gzip) à chaque appel,
+ * ou snapshot déjà sérialisé et compressé, reconstruit seulement quand le catalogue change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogSnapshotBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private CatalogSnapshots snapshots;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        snapshots = new CatalogSnapshots(objectMapper);
+        products = new ArrayList<>(rows);
+        for (long i = 1; i <= rows; i++) {
+            Product product = new Product(i, "Produit " + i,
+                    "Description générée du produit " + i + ", avec un texte d'une longueur réaliste pour la fiche.",
+                    10 + (i % 1000) * 0.5, 100, "https://images.example.com/" + i + ".jpg");
+            product.setVersion(0L);
+            products.add(product);
+        }
+        products = List.copyOf(products);
+    }
+
+    @Benchmark
+    public byte[] serializeEachRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] serializeAndGzipEachRequest() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            objectMapper.writeValue(out, products);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] snapshotGzip() {
+        return snapshots.of(products, catalog -> "\"c\"").select("gzip, deflate, br").bytes();
+    }
+}
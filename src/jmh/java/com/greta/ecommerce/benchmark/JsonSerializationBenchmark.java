@@ -0,0 +1,69 @@
+package com.greta.ecommerce.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.entity.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sérialisation Jackson des graphes Product et Order, configurée comme l'ObjectMapper de Spring Boot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private List<Product> products;
+    private List<Order> orders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        products = new ArrayList<>(rows);
+        orders = new ArrayList<>(rows);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (long i = 1; i <= rows; i++) {
+            Product product = new Product(i, "Produit " + i,
+                    "Description générée du produit " + i + ", avec un texte d'une longueur réaliste pour la fiche.",
+                    10 + (i % 1000) * 0.5, 100, "https://images.example.com/" + i + ".jpg");
+            product.setVersion(0L);
+            products.add(product);
+
+            List<OrderItem> items = List.of(
+                    new OrderItem(2 * i, i, i % 4 + 1, 1),
+                    new OrderItem(2 * i + 1, i, (i + 1) % 4 + 1, 2));
+            Order order = new Order(i, "client" + i % 5000 + "@example.com", start.plusSeconds(i), "PENDING", items);
+            order.setVersion(0L);
+            orders.add(order);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeProducts() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] serializeOrders() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orders);
+    }
+}
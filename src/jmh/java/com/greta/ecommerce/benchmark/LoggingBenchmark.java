@@ -0,0 +1,92 @@
+package com.greta.ecommerce.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût, sur le thread de requête, des lignes de log qu'émet une requête GET /api/orders en DEBUG
+ * (échange HTTP + SQL), selon que l'appender est synchrone ou asynchrone comme dans le profil prod.
+ * Le scénario "prod" reproduit les niveaux du profil : les lignes DEBUG ne sont même pas formatées.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoggingBenchmark {
+
+    @Param({"debug-sync", "debug-async", "prod"})
+    public String mode;
+
+    private LoggerContext context;
+    private Logger web;
+    private Logger jdbc;
+    private File logFile;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() throws IOException {
+        context = new LoggerContext();
+        logFile = File.createTempFile("logging-benchmark", ".log");
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(logFile.getAbsolutePath());
+        file.setEncoder(encoder);
+        file.start();
+
+        Appender<ILoggingEvent> appender = file;
+        if (!mode.equals("debug-sync")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(1638);
+            async.setIncludeCallerData(false);
+            async.addAppender(file);
+            async.start();
+            appender = async;
+        }
+
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.addAppender(appender);
+        root.setLevel(mode.equals("prod") ? ch.qos.logback.classic.Level.INFO : ch.qos.logback.classic.Level.DEBUG);
+        web = context.getLogger("org.springframework.web.servlet.DispatcherServlet");
+        jdbc = context.getLogger("org.springframework.jdbc.core.JdbcTemplate");
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        context.stop();
+        logFile.delete();
+    }
+
+    @Benchmark
+    public void request() {
+        web.debug("GET \"/api/orders?limit={}\", parameters={}", 50, "masked");
+        web.debug("Mapped to com.greta.ecommerce.controller.OrderController#getOrdersPage(int, String)");
+        jdbc.debug("Executing prepared SQL query");
+        jdbc.debug("Executing prepared SQL statement [{}]", "SELECT * FROM orders ORDER BY date, id LIMIT ?");
+        jdbc.debug("Executing prepared SQL query");
+        jdbc.debug("Executing prepared SQL statement [{}]", "SELECT * FROM order_item WHERE order_id IN (?, ?, ?)");
+        web.debug("Using 'application/json', given [*/*] and supported [application/json]");
+        web.debug("Writing [{}]", "com.greta.ecommerce.dto.OrderPage@1b2c3d4");
+        web.debug("Completed 200 OK");
+        web.info("Requête traitée");
+    }
+}
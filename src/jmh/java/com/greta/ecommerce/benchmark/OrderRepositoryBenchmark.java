@@ -0,0 +1,65 @@
+package com.greta.ecommerce.benchmark;
+
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.repository.OrderItemRepository;
+import com.greta.ecommerce.repository.OrderRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping des commandes et assemblage commande / items : chargement complet en lot,
+ * page par curseur et export en flux.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderRepositoryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private EmbeddedDatabase database;
+    private OrderRepository orderRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        BenchmarkDatabase.insertOrders(jdbcTemplate, rows);
+        orderRepository = new OrderRepository(jdbcTemplate, new OrderItemRepository(jdbcTemplate));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<Order> findAll() {
+        return orderRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Order> findByStatus() {
+        return orderRepository.findByStatus("CANCELLED");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Order> findFirstPage() {
+        return orderRepository.findPage(null, 100);
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        orderRepository.streamAll(blackhole::consume);
+    }
+}
@@ -0,0 +1,71 @@
+package com.greta.ecommerce.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.dto.ImportReport;
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.service.ProductImportService;
+import com.greta.ecommerce.service.ProductImportService.Format;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import CSV de bout en bout (lecture, validation, insertion par lots) sur une base vide à chaque itération.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ProductImportBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private byte[] csv;
+    private EmbeddedDatabase database;
+    private ProductImportService productImportService;
+
+    @Setup(Level.Trial)
+    public void generateCsv() {
+        StringBuilder builder = new StringBuilder("name,description,price,stock,imageUrl\n");
+        for (int i = 0; i < rows; i++) {
+            builder.append("Produit ").append(i)
+                    .append(",\"Description générée, produit ").append(i).append("\",")
+                    .append(10 + (i % 1000) * 0.5).append(',')
+                    .append(i % 500).append(',')
+                    .append("https://images.example.com/").append(i).append(".jpg\n");
+        }
+        csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        database = BenchmarkDatabase.create();
+        ProductRepository productRepository =
+                new ProductRepository(new JdbcTemplate(database), new ProductCache(1000, 300), event -> { });
+        productImportService = new ProductImportService(productRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(),
+                new DataSourceTransactionManager(database));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public ImportReport importCsv() throws IOException {
+        return productImportService.importProducts(new ByteArrayInputStream(csv), Format.CSV);
+    }
+}
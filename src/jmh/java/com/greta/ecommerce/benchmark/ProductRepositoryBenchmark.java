@@ -0,0 +1,65 @@
+package com.greta.ecommerce.benchmark;
+
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.entity.Product;
+import com.greta.ecommerce.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping des lignes product : le cache est vidé avant chaque appel pour mesurer le chemin JDBC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductRepositoryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private EmbeddedDatabase database;
+    private ProductCache productCache;
+    private ProductRepository productRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        BenchmarkDatabase.insertProducts(jdbcTemplate, rows);
+        productCache = new ProductCache(10_000, 300);
+        productRepository = new ProductRepository(jdbcTemplate, productCache, event -> { });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<Product> findAll() {
+        productCache.evictAll();
+        return productRepository.findAll();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Optional<Product> findById() {
+        productCache.evictAll();
+        return productRepository.findById(ThreadLocalRandom.current().nextLong(1, rows + 1));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Optional<Product> findByIdCached() {
+        return productRepository.findById(ThreadLocalRandom.current().nextLong(1, Math.min(rows, 10_000) + 1));
+    }
+}
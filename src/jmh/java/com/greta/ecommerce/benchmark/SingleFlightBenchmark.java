@@ -0,0 +1,64 @@
+package com.greta.ecommerce.benchmark;
+
+import com.greta.ecommerce.cache.SingleFlight;
+import com.greta.ecommerce.entity.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Afflux de lectures sur un même produit, sans cache : chaque appel interroge la base (direct)
+ * ou rejoint la requête déjà en cours (single-flight). Le compteur auxiliaire "queries" donne
+ * le nombre de requêtes SQL réellement exécutées par milliseconde.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class SingleFlightBenchmark {
+
+    @Param({"direct", "single-flight"})
+    public String mode;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private SingleFlight<Long, List<Product>> flights;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Queries {
+        public long queries;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create();
+        jdbcTemplate = new JdbcTemplate(database);
+        flights = new SingleFlight<>();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<Product> findHotProduct(Queries queries) {
+        if (mode.equals("direct")) {
+            return load(queries);
+        }
+        return flights.execute(1L, () -> load(queries));
+    }
+
+    private List<Product> load(Queries queries) {
+        queries.queries++;
+        return jdbcTemplate.query("SELECT * FROM product WHERE id = ?", new BeanPropertyRowMapper<>(Product.class), 1L);
+    }
+}
@@ -0,0 +1,81 @@
+package com.greta.ecommerce.benchmark;
+
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.repository.StockLedgerRepository;
+import com.greta.ecommerce.stock.StockLedger;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Réservations concurrentes sur un même produit : UPDATE conditionnel en transaction (chemin SQL
+ * actuel) contre le registre en mémoire, avec ou sans fsync du journal à chaque réservation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class StockContentionBenchmark {
+
+    @Param({"sql", "ledger", "ledger-nofsync"})
+    public String mode;
+
+    private static final Map<Long, Integer> ONE_UNIT = Map.of(1L, 1);
+
+    private EmbeddedDatabase database;
+    private Path directory;
+    private ProductRepository productRepository;
+    private TransactionTemplate transactionTemplate;
+    private StockLedger stockLedger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        database = TestDatabase.create(";LOCK_TIMEOUT=30000");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.update("UPDATE product SET stock = 2000000000 WHERE id = 1");
+        productRepository = new ProductRepository(jdbcTemplate, new ProductCache(100, 300), event -> { });
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(database);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (!mode.equals("sql")) {
+            directory = Files.createTempDirectory("stock-ledger");
+            stockLedger = new StockLedger(productRepository, new StockLedgerRepository(jdbcTemplate),
+                    transactionManager, directory.toString(), 1000, mode.equals("ledger"));
+            stockLedger.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (stockLedger != null) {
+            stockLedger.stop();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<Long> reserveHotProduct() {
+        if (stockLedger != null) {
+            return stockLedger.reserve(ONE_UNIT);
+        }
+        return transactionTemplate.execute(status -> productRepository.reserveStock(ONE_UNIT));
+    }
+}
@@ -0,0 +1,155 @@
+package com.greta.ecommerce.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Catalogue complet sérialisé une seule fois en JSON, en clair et en gzip (deflate à la demande).
+ * Tant que ProductCache sert la même liste, le snapshot est retrouvé par simple comparaison de
+ * référence, sans parcourir le catalogue. Une nouvelle liste (écriture, expiration du cache) fait
+ * calculer son ETag une fois : le snapshot n'est reconstruit que si le catalogue a réellement changé.
+ * Pendant la reconstruction, menée par un seul thread, les autres requêtes continuent de recevoir
+ * le snapshot précédent avec son ETag.
+ */
+@Component
+public class CatalogSnapshots {
+
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Snapshot current;
+
+    public CatalogSnapshots(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param products liste partagée par le cache, jamais modifiée
+     * @param eTagOf   ETag d'une liste, calculé seulement quand la liste n'est pas celle du snapshot courant
+     */
+    public Snapshot of(List<Product> products, Function<List<Product>, String> eTagOf) {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.source == products) {
+            return snapshot;
+        }
+        if (snapshot == null) {
+            // Premier appel : rien à servir en attendant, on attend le constructeur
+            rebuildLock.lock();
+        } else if (!rebuildLock.tryLock()) {
+            return snapshot;
+        }
+        try {
+            snapshot = current;
+            if (snapshot == null || snapshot.source != products) {
+                String eTag = eTagOf.apply(products);
+                // Liste rechargée à l'identique : les octets déjà produits sont repris
+                snapshot = snapshot != null && snapshot.eTag.equals(eTag)
+                        ? snapshot.withSource(products)
+                        : build(products, eTag);
+                current = snapshot;
+            }
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot build(List<Product> products, String eTag) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(products);
+            return new Snapshot(products, eTag, json, new Body("gzip", variant(eTag, "gzip"),
+                    compress(json, GZIPOutputStream::new)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation du catalogue impossible", e);
+        }
+    }
+
+    private interface Encoder {
+        OutputStream wrap(OutputStream out) throws IOException;
+    }
+
+    private static byte[] compress(byte[] json, Encoder encoder) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4);
+        try (OutputStream out = encoder.wrap(buffer)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    // Corps prêt à écrire : encoding null pour le JSON en clair. L'ETag diffère selon l'encodage.
+    public record Body(String encoding, String eTag, byte[] bytes) {
+    }
+
+    private static String variant(String eTag, String encoding) {
+        return eTag.endsWith("\"") ? eTag.substring(0, eTag.length() - 1) + "-" + encoding + "\"" : eTag + "-" + encoding;
+    }
+
+    public static final class Snapshot {
+        private final List<Product> source;
+        private final String eTag;
+        private final byte[] json;
+        private final Body identity;
+        private final Body gzip;
+        // Compressé au premier client qui le demande (rare) ; un double calcul concurrent est sans effet
+        private volatile Body deflate;
+
+        private Snapshot(List<Product> source, String eTag, byte[] json, Body gzip) {
+            this.source = source;
+            this.eTag = eTag;
+            this.json = json;
+            this.identity = new Body(null, eTag, json);
+            this.gzip = gzip;
+        }
+
+        private Snapshot withSource(List<Product> products) {
+            Snapshot snapshot = new Snapshot(products, eTag, json, gzip);
+            snapshot.deflate = deflate;
+            return snapshot;
+        }
+
+        private Body deflate() {
+            Body body = deflate;
+            if (body == null) {
+                body = new Body("deflate", variant(eTag, "deflate"), compress(json, DeflaterOutputStream::new));
+                deflate = body;
+            }
+            return body;
+        }
+
+        // gzip si le client l'accepte (deflate, à peine plus court, est diversement décodé), sinon deflate
+        public Body select(String acceptEncoding) {
+            if (acceptEncoding == null) {
+                return identity;
+            }
+            boolean acceptsGzip = false;
+            boolean acceptsDeflate = false;
+            for (String part : acceptEncoding.split(",")) {
+                String[] tokens = part.split(";");
+                String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+                if (tokens.length > 1 && tokens[1].trim().matches("q=0(\\.0*)?")) {
+                    continue;
+                }
+                acceptsGzip |= coding.equals("gzip") || coding.equals("*");
+                acceptsDeflate |= coding.equals("deflate") || coding.equals("*");
+            }
+            if (acceptsGzip) {
+                return gzip;
+            }
+            return acceptsDeflate ? deflate() : identity;
+        }
+    }
+}
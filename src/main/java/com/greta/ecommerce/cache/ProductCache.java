@@ -0,0 +1,151 @@
+package com.greta.ecommerce.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.greta.ecommerce.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache mémoire du catalogue, utilisé par ProductRepository.
+ * Les produits renvoyés sont partagés entre les requêtes : ils ne doivent pas être modifiés.
+ */
+@Component
+public class ProductCache {
+    private static final String ALL_KEY = "all";
+    private static final int ID_GENERATION_STRIPES = 4096;
+
+    private final Cache<Long, Product> byId;
+    private final Cache<String, List<Product>> catalog;
+
+    // Chargements en cours, partagés entre requêtes concurrentes (hors du verrou interne de Caffeine)
+    private final SingleFlight<Long, Optional<Product>> byIdLoads = new SingleFlight<>();
+    private final SingleFlight<String, List<Product>> catalogLoads = new SingleFlight<>();
+    // Incrémentés à chaque invalidation : un chargement commencé avant n'est pas mis en cache.
+    // Par produit (réparti sur des compteurs partagés par hachage) pour que l'écriture d'un produit
+    // n'écarte pas les chargements des autres ; un seul compteur pour la liste complète.
+    private final AtomicLongArray idGenerations = new AtomicLongArray(ID_GENERATION_STRIPES);
+    private final AtomicLong catalogGeneration = new AtomicLong();
+
+    public ProductCache(@Value("${ecommerce.cache.products.max-size:10000}") long maxSize,
+                        @Value("${ecommerce.cache.products.ttl-seconds:300}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.catalog = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Product> getById(Long id, Function<Long, Optional<Product>> loader) {
+        Product cached = byId.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        int stripe = stripe(id);
+        return byIdLoads.execute(id, () -> {
+            long startedAt = idGenerations.get(stripe);
+            Optional<Product> product = loader.apply(id);
+            // Les produits absents ne sont pas mis en cache
+            if (product.isPresent() && idGenerations.get(stripe) == startedAt) {
+                byId.put(id, product.get());
+            }
+            return product;
+        });
+    }
+
+    public List<Product> getAll(Supplier<List<Product>> loader) {
+        List<Product> cached = catalog.getIfPresent(ALL_KEY);
+        if (cached != null) {
+            return cached;
+        }
+        return catalogLoads.execute(ALL_KEY, () -> {
+            long startedAt = catalogGeneration.get();
+            List<Product> products = List.copyOf(loader.get());
+            if (catalogGeneration.get() == startedAt) {
+                catalog.put(ALL_KEY, products);
+            }
+            return products;
+        });
+    }
+
+    /**
+     * Invalide les produits donnés et la liste complète. Dans une transaction, l'invalidation
+     * est répétée après la fin de celle-ci pour écarter une valeur relue entre-temps.
+     */
+    public void evict(Collection<Long> ids) {
+        doEvict(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    doEvict(ids);
+                }
+            });
+        }
+    }
+
+    public void evict(Long id) {
+        evict(List.of(id));
+    }
+
+    public void evictAll() {
+        for (int i = 0; i < ID_GENERATION_STRIPES; i++) {
+            idGenerations.incrementAndGet(i);
+        }
+        catalogGeneration.incrementAndGet();
+        byIdLoads.forgetAll();
+        catalogLoads.forgetAll();
+        byId.invalidateAll();
+        catalog.invalidateAll();
+    }
+
+    private void doEvict(Collection<Long> ids) {
+        ids.forEach(id -> idGenerations.incrementAndGet(stripe(id)));
+        catalogGeneration.incrementAndGet();
+        ids.forEach(byIdLoads::forget);
+        catalogLoads.forgetAll();
+        byId.invalidateAll(ids);
+        catalog.invalidateAll();
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (ID_GENERATION_STRIPES - 1);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("products", toMap(byId.stats(), byId.estimatedSize()));
+        stats.put("catalog", toMap(catalog.stats(), catalog.estimatedSize()));
+        return stats;
+    }
+
+    private static Map<String, Object> toMap(CacheStats stats, long size) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", size);
+        map.put("hits", stats.hitCount());
+        map.put("misses", stats.missCount());
+        map.put("evictions", stats.evictionCount());
+        map.put("hitRate", stats.hitRate());
+        return map;
+    }
+}
@@ -0,0 +1,78 @@
+package com.greta.ecommerce.controller;
+
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.dto.OrderStats;
+import com.greta.ecommerce.logging.SqlTraceFilter;
+import com.greta.ecommerce.service.OrderStatsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final ProductCache productCache;
+    private final SqlTraceFilter sqlTraceFilter;
+    private final OrderStatsService orderStatsService;
+
+    public AdminController(ProductCache productCache, SqlTraceFilter sqlTraceFilter,
+                           OrderStatsService orderStatsService) {
+        this.productCache = productCache;
+        this.sqlTraceFilter = sqlTraceFilter;
+        this.orderStatsService = orderStatsService;
+    }
+
+    // Compteurs hits / misses / évictions du cache produits
+    @GetMapping("/cache/products")
+    public Map<String, Object> getProductCacheStats() {
+        return productCache.stats();
+    }
+
+    // Autorise (ou non) la trace SQL par requête via l'en-tête X-Sql-Trace
+    @PutMapping("/logging/sql-trace")
+    public Map<String, Boolean> setSqlTrace(@RequestParam boolean enabled) {
+        sqlTraceFilter.setEnabled(enabled);
+        return Map.of("enabled", sqlTraceFilter.isEnabled());
+    }
+
+    // Commandes et quantités par statut, éventuellement sur une période (?from=2025-01-01&to=2025-01-31)
+    @GetMapping("/stats/status")
+    public List<OrderStats> getStatsByStatus(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return orderStatsService.getByStatus(from, to);
+    }
+
+    // Commandes et quantités par jour et statut, 30 derniers jours par défaut
+    @GetMapping("/stats/daily")
+    public List<OrderStats> getDailyStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        return orderStatsService.getDaily(from != null ? from : end.minusDays(29), end, status);
+    }
+
+    // Produits les plus commandés, tous statuts confondus ou pour un statut (?status=PENDING)
+    @GetMapping("/stats/products")
+    public List<OrderStats> getProductStats(@RequestParam(required = false) String status,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        return orderStatsService.getTopProducts(status, Math.max(1, Math.min(limit, 1000)));
+    }
+
+    // Recalcule les agrégats depuis les commandes. Les écritures de commandes continuent pendant le calcul :
+    // chaque slot corrige l'écart entre ses seaux et ses commandes, sans écraser les deltas arrivés entre-temps
+    @PostMapping("/stats/rebuild")
+    public Map<String, Object> rebuildStats() {
+        return orderStatsService.rebuild();
+    }
+}
@@ -0,0 +1,36 @@
+package com.greta.ecommerce.controller;
+
+import com.greta.ecommerce.dto.TokenRequest;
+import com.greta.ecommerce.dto.TokenResponse;
+import com.greta.ecommerce.security.JwtService;
+import jakarta.validation.Valid;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+
+    private final AuthenticationManager authenticationManager;
+    private final JwtService jwtService;
+
+    public AuthController(AuthenticationConfiguration authenticationConfiguration, JwtService jwtService) throws Exception {
+        this.authenticationManager = authenticationConfiguration.getAuthenticationManager();
+        this.jwtService = jwtService;
+    }
+
+    // Vérifie le mot de passe une seule fois et renvoie un jeton à présenter en "Authorization: Bearer <token>".
+    // Identifiants incorrects : BadCredentialsException -> 401 (GlobalExceptionHandler)
+    @PostMapping("/token")
+    public TokenResponse issueToken(@Valid @RequestBody TokenRequest request) {
+        Authentication authentication = authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated(request.getUsername(), request.getPassword()));
+        return new TokenResponse(jwtService.issue(authentication), jwtService.getTtl().toSeconds());
+    }
+}
@@ -0,0 +1,36 @@
+package com.greta.ecommerce.controller;
+
+import com.greta.ecommerce.event.ChangeEventBus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+/**
+ * Flux Server-Sent Events des changements : événements "stock" ({"id":..,"stock":..}),
+ * "order-status" ({"id":..,"status":..}) et "resync" quand le client doit relire l'état complet.
+ */
+@RestController
+public class ChangeStreamController {
+
+    private final ChangeEventBus changeEventBus;
+
+    public ChangeStreamController(ChangeEventBus changeEventBus) {
+        this.changeEventBus = changeEventBus;
+    }
+
+    // Stock des produits listés (?ids=1,2,3), ou de tout le catalogue sans paramètre
+    @GetMapping(value = "/api/products/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStock(@RequestParam(required = false) Set<Long> ids) {
+        return changeEventBus.subscribeProducts(ids);
+    }
+
+    // Statut des commandes listées (?ids=10,11)
+    @GetMapping(value = "/api/orders/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderStatus(@RequestParam Set<Long> ids) {
+        return changeEventBus.subscribeOrders(ids);
+    }
+}
@@ -0,0 +1,58 @@
+package com.greta.ecommerce.controller;
+
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.Product;
+
+import java.util.List;
+
+/**
+ * ETags forts calculés à partir des colonnes version, sans sérialiser la réponse.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String forProduct(Product product) {
+        return forProduct(product.getId(), product.getVersion());
+    }
+
+    static String forProduct(Long id, Long version) {
+        return "\"p" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Version attendue d'après un en-tête If-Match portant l'ETag fort d'un produit.
+     *
+     * @return -1 pour "*" (toute version), null si l'en-tête ne peut correspondre à aucune version du produit
+     */
+    static Long productVersion(String ifMatch, Long id) {
+        String value = ifMatch.trim();
+        if (value.equals("*")) {
+            return -1L;
+        }
+        String prefix = "\"p" + id + "-";
+        if (!value.startsWith(prefix) || !value.endsWith("\"") || value.length() <= prefix.length() + 1) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.substring(prefix.length(), value.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static String forOrder(Order order) {
+        return "\"o" + order.getId() + "-" + order.getVersion() + "\"";
+    }
+
+    // Empreinte des couples (id, version) : change à chaque création, modification ou suppression
+    static String forCatalog(List<Product> products) {
+        long hash = 1125899906842597L;
+        for (Product product : products) {
+            hash = 31 * hash + product.getId();
+            hash = 31 * hash + product.getVersion();
+        }
+        return "\"c" + products.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+}
@@ -1,20 +1,56 @@
 package com.greta.ecommerce.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.greta.ecommerce.dto.OrderChangePage;
+import com.greta.ecommerce.dto.OrderPage;
+import com.greta.ecommerce.dto.OrderTicket;
 import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.exception.ResourceNotFoundException;
+import com.greta.ecommerce.outbox.OrderOutbox;
+import com.greta.ecommerce.service.IdempotencyService;
+import com.greta.ecommerce.service.OrderIngestionService;
 import com.greta.ecommerce.service.OrderService;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final OrderService orderService;
+    private final OrderIngestionService orderIngestionService; // null si le mode asynchrone est désactivé
+    private final IdempotencyService idempotencyService;
+    private final OrderOutbox orderOutbox;
+    private final ObjectWriter lineWriter;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService,
+                           ObjectProvider<OrderIngestionService> orderIngestionService,
+                           IdempotencyService idempotencyService,
+                           OrderOutbox orderOutbox,
+                           ObjectMapper objectMapper) {
         this.orderService = orderService;
+        this.orderIngestionService = orderIngestionService.getIfAvailable();
+        this.idempotencyService = idempotencyService;
+        this.orderOutbox = orderOutbox;
+        // Le flux de réponse reste ouvert entre deux lignes
+        this.lineWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     @GetMapping
@@ -22,9 +58,49 @@ public class OrderController {
         return orderService.getAllOrders();
     }
 
+    // Pagination par curseur sur (date, id) : ?limit=50&after=<nextCursor de la page précédente>
+    @GetMapping(params = "limit")
+    public OrderPage getOrdersPage(@RequestParam int limit,
+                                   @RequestParam(required = false) String after) {
+        return orderService.getOrdersPage(after, limit);
+    }
+
+    // Export NDJSON : une commande par ligne, écrite au fil de la lecture en base
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        StreamingResponseBody body = out -> {
+            try {
+                orderService.exportOrders(order -> {
+                    try {
+                        lineWriter.writeValue(out, order);
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    // Flux des changements (créations, statuts) : ?since=<next de la réponse précédente>, 0 pour tout relire
+    @GetMapping("/changes")
+    public OrderChangePage getOrderChanges(@RequestParam(defaultValue = "0") long since,
+                                           @RequestParam(defaultValue = "500") int limit) {
+        return orderOutbox.changesSince(since, limit);
+    }
+
     @GetMapping("/{id}")
-    public Order getOrderById(@PathVariable Long id) {
-        return orderService.getOrderById(id);
+    public ResponseEntity<Order> getOrderById(@PathVariable Long id, WebRequest request) {
+        Order order = orderService.getOrderById(id);
+        String eTag = ETags.forOrder(order);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(order);
     }
 
     @GetMapping("/email/{email}")
@@ -32,10 +108,34 @@ public class OrderController {
         return orderService.getOrdersByEmail(email);
     }
 
+    // Avec "Prefer: respond-async" (et le mode asynchrone activé) : 202 + ticket à suivre via Location.
+    // Avec "Idempotency-Key" : un renvoi de la même requête rejoue la première réponse.
     @PostMapping
-    public Order createOrder(@Valid @RequestBody Order order) {
+    public ResponseEntity<?> createOrder(@Valid @RequestBody Order order,
+                                         @RequestHeader(value = "Prefer", required = false) String prefer,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            return idempotencyService.execute(idempotencyKey, order, () -> submitOrder(order, prefer));
+        }
+        return submitOrder(order, prefer);
+    }
 
-        return orderService.createOrder(order);
+    private ResponseEntity<?> submitOrder(Order order, String prefer) {
+        if (orderIngestionService != null && prefer != null && prefer.contains(RESPOND_ASYNC)) {
+            OrderTicket ticket = orderIngestionService.submit(order);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/orders/tickets/" + ticket.getTicket()))
+                    .body(ticket);
+        }
+        return ResponseEntity.ok(orderService.createOrder(order));
     }
-}
 
+    @GetMapping("/tickets/{ticket}")
+    public OrderTicket getOrderTicket(@PathVariable String ticket) {
+        if (orderIngestionService == null) {
+            throw new ResourceNotFoundException("Asynchronous order ingestion is disabled");
+        }
+        return orderIngestionService.getTicket(ticket)
+                .orElseThrow(() -> new ResourceNotFoundException("Ticket not found: " + ticket));
+    }
+}
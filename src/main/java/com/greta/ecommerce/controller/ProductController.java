@@ -1,11 +1,20 @@
 package com.greta.ecommerce.controller;
 
+import com.greta.ecommerce.cache.CatalogSnapshots;
+import com.greta.ecommerce.dto.ProductQuery;
+import com.greta.ecommerce.dto.ProductSummary;
+import com.greta.ecommerce.dto.ProductUpdate;
 import com.greta.ecommerce.entity.Product;
+import com.greta.ecommerce.exception.VersionConflictException;
 import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.search.ProductSearchIndex;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.net.URI;
@@ -16,23 +25,65 @@ import java.util.List;
 @CrossOrigin(origins = "http://localhost:3000")
 public class ProductController {
 
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private final ProductRepository productRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final CatalogSnapshots catalogSnapshots;
 
-    public ProductController(ProductRepository productRepository) {
+    public ProductController(ProductRepository productRepository, ProductSearchIndex productSearchIndex,
+                             CatalogSnapshots catalogSnapshots) {
         this.productRepository = productRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.catalogSnapshots = catalogSnapshots;
     }
 
+    // Sans paramètre : catalogue complet depuis le cache, déjà sérialisé (et compressé selon
+    // Accept-Encoding), avec ETag. Avec filtres, tri, page ou fields= : projection légère lue en base.
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(@ModelAttribute ProductQuery query, WebRequest request) {
+        if (!query.isEmpty()) {
+            List<ProductSummary> summaries = productRepository.findSummaries(query);
+            return ResponseEntity.ok(summaries);
+        }
         List<Product> products = productRepository.findAll();
-        return ResponseEntity.ok(products);
+        CatalogSnapshots.Body body = catalogSnapshots.of(products, ETags::forCatalog)
+                .select(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (request.checkNotModified(body.eTag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(body.eTag())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(body.eTag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.bytes().length);
+        if (body.encoding() != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, body.encoding());
+        }
+        // Octets écrits tels quels par ByteArrayHttpMessageConverter, sans passer par Jackson
+        return response.body(body.bytes());
+    }
+
+    // Recherche plein texte sur le nom et la description, servie par l'index en mémoire
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q,
+                                                       @RequestParam(defaultValue = "20") int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        return ResponseEntity.ok(productSearchIndex.search(q, size));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable int id) {
+    public ResponseEntity<Product> getProductById(@PathVariable int id, WebRequest request) {
         Product product = productRepository.findById((long) id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
-        return ResponseEntity.ok(product);
+        String eTag = ETags.forProduct(product);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(product);
     }
 
     @PostMapping
@@ -43,43 +94,73 @@ public class ProductController {
                 .body(savedProduct);
     }
 
+    /**
+     * Mise à jour optimiste, sans lecture préalable ni verrou. Avec If-Match (ETag du GET), elle n'a lieu
+     * que si le produit est encore à cette version : 412 avec l'ETag courant sinon, If-Match: * la rend
+     * inconditionnelle. Sans en-tête, la version du corps joue le même rôle : 409 avec la version courante
+     * sinon. Sans l'un ni l'autre, elle est inconditionnelle.
+     * Un corps portant le stock est refusé (400) : voir {@link ProductUpdate}. La réponse est le produit relu.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Product> updateProduct(@PathVariable int id, @Valid @RequestBody Product product) {
-        if (productRepository.findById((long) id).isEmpty()) {
+    public ResponseEntity<Product> updateProduct(@PathVariable int id, @Valid @RequestBody ProductUpdate update,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Product product = new Product((long) id, update.getName(), update.getDescription(), update.getPrice(),
+                null, update.getImageUrl());
+        Long expectedVersion = update.getVersion();
+        if (ifMatch != null) {
+            Long version = ETags.productVersion(ifMatch, product.getId());
+            if (version == null) {
+                // En-tête qui ne peut désigner aucune version : 404 si le produit n'existe pas, 412 sinon
+                Long currentVersion = productRepository.findVersion(product.getId())
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                        .eTag(ETags.forProduct(product.getId(), currentVersion))
+                        .build();
+            }
+            expectedVersion = version < 0 ? null : version;
+        }
+        boolean updated;
+        try {
+            updated = productRepository.update(product, expectedVersion);
+        } catch (VersionConflictException e) {
+            if (ifMatch == null) {
+                throw e; // version du corps : 409 (GlobalExceptionHandler)
+            }
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .eTag(ETags.forProduct(e.getId(), e.getCurrentVersion()))
+                    .build();
+        }
+        // Le nombre de lignes modifiées indique si le produit existe
+        if (!updated) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
         }
-        product.setId((long) id);
-        Product updatedProduct = productRepository.update(product);
-        return ResponseEntity.ok(updatedProduct);
+        Product current = productRepository.findById(product.getId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+        return ResponseEntity.ok().eTag(ETags.forProduct(current)).body(current);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable int id) {
-        if (productRepository.findById((long) id).isEmpty()) {
+        if (!productRepository.delete((long) id)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
         }
-        productRepository.delete((long) id);
         return ResponseEntity.noContent().build();
     }
 
+    // Variation relative appliquée en une requête (stock + delta >= 0) ; le produit n'est relu
+    // qu'en cas de refus, pour distinguer produit absent et stock insuffisant
     @PutMapping("/{id}/stock")
     public ResponseEntity<Boolean> updateStock(
             @PathVariable int id,
             @RequestParam int quantity,
             @RequestParam boolean increment) {
-        Product product = productRepository.findById((long) id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
-
-        int newStock = increment ?
-                product.getStock() + quantity :
-                product.getStock() - quantity;
-
-        if (newStock < 0) {
+        int delta = increment ? quantity : -quantity;
+        if (!productRepository.adjustStock((long) id, delta)) {
+            if (productRepository.findStock((long) id).isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+            }
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient stock");
         }
-
-        product.setStock(newStock);
-        boolean updatedProduct = productRepository.updateStock((long) id, newStock);
-        return ResponseEntity.ok(updatedProduct);
+        return ResponseEntity.ok(true);
     }
 }
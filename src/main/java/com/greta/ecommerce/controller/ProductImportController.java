@@ -0,0 +1,51 @@
+package com.greta.ecommerce.controller;
+
+import com.greta.ecommerce.dto.ImportReport;
+import com.greta.ecommerce.service.ProductImportService;
+import com.greta.ecommerce.service.ProductImportService.Format;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Imports en masse réservés à l'administration. Le corps de la requête est lu en flux :
+ * un fichier d'un million de lignes ne transite jamais entièrement en mémoire.
+ */
+@RestController
+@RequestMapping("/api/admin/products")
+public class ProductImportController {
+
+    private static final String CSV = "text/csv";
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ProductImportService productImportService;
+
+    public ProductImportController(ProductImportService productImportService) {
+        this.productImportService = productImportService;
+    }
+
+    // En-tête attendu : name,description,price,stock,imageUrl
+    @PostMapping(value = "/import", consumes = CSV)
+    public ImportReport importCsv(InputStream body) throws IOException {
+        return productImportService.importProducts(body, Format.CSV);
+    }
+
+    @PostMapping(value = "/import", consumes = NDJSON)
+    public ImportReport importNdjson(InputStream body) throws IOException {
+        return productImportService.importProducts(body, Format.NDJSON);
+    }
+
+    // En-tête attendu : productId,delta
+    @PostMapping(value = "/stock-adjustments", consumes = CSV)
+    public ImportReport adjustStockCsv(InputStream body) throws IOException {
+        return productImportService.importStockAdjustments(body, Format.CSV);
+    }
+
+    @PostMapping(value = "/stock-adjustments", consumes = NDJSON)
+    public ImportReport adjustStockNdjson(InputStream body) throws IOException {
+        return productImportService.importStockAdjustments(body, Format.NDJSON);
+    }
+}
@@ -0,0 +1,98 @@
+package com.greta.ecommerce.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base primaire et réplicas en lecture. Les réplicas sont choisis à tour de rôle parmi ceux en bonne santé ;
+ * un réplica est écarté dès qu'une connexion échoue et réintégré par la vérification périodique.
+ */
+public class DatabaseNodes implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseNodes.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public DatabaseNodes(DataSource primary, List<? extends DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+    }
+
+    public DataSource primary() {
+        return primary;
+    }
+
+    // Prochain réplica disponible, vide si aucun ne l'est (la lecture se fait alors sur le primaire)
+    public Optional<DataSource> nextReplica() {
+        int count = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(count, 1));
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (replica.healthy) {
+                return Optional.of(replica.dataSource);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void markDown(DataSource dataSource, SQLException cause) {
+        for (Replica replica : replicas) {
+            if (replica.dataSource == dataSource && replica.healthy) {
+                replica.healthy = false;
+                log.warn("Réplica écarté des lectures : {}", cause.getMessage());
+            }
+        }
+    }
+
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.datasource.health-check-interval-ms:5000}")
+    public void checkHealth() {
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.info("Réplica {} {}", i, healthy ? "réintégré" : "hors service");
+                replica.healthy = healthy;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static final class Replica {
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
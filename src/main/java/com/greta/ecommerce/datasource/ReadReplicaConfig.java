@@ -0,0 +1,75 @@
+package com.greta.ecommerce.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas en lecture (ecommerce.datasource.replicas, URLs JDBC séparées par des virgules, mêmes identifiants
+ * que spring.datasource). Seul le DataSource routé est exposé comme bean : primaire et réplicas restent
+ * internes, pour que Flyway et le comptage des statements ne voient qu'une source.
+ * Chaque pool reçoit les réglages spring.datasource.hikari.* (taille, délais du profil virtual...),
+ * ecommerce.datasource.pool-size ne servant que de taille par défaut.
+ */
+@Configuration
+@ConditionalOnProperty(name = "ecommerce.datasource.replicas")
+public class ReadReplicaConfig {
+
+    // Modèle commun aux pools : identifiants de spring.datasource, puis spring.datasource.hikari.* appliqué par-dessus
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig hikariSettings(DataSourceProperties properties,
+                                       @Value("${ecommerce.datasource.pool-size:10}") int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName(properties.determineDriverClassName());
+        config.setUsername(properties.determineUsername());
+        config.setPassword(properties.determinePassword());
+        config.setMaximumPoolSize(poolSize);
+        return config;
+    }
+
+    @Bean(destroyMethod = "close")
+    public DatabaseNodes databaseNodes(DataSourceProperties properties, HikariConfig hikariSettings,
+                                       @Value("${ecommerce.datasource.replicas}") List<String> replicaUrls) {
+        HikariDataSource primary = pool(hikariSettings, properties.determineUrl(), "primary");
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (!url.isBlank()) {
+                replicas.add(pool(hikariSettings, url.trim(), "replica-" + replicas.size()));
+            }
+        }
+        return new DatabaseNodes(primary, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DatabaseNodes databaseNodes) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(databaseNodes));
+    }
+
+    @Bean
+    public RecentWrites recentWrites(@Value("${ecommerce.datasource.read-your-writes-ms:5000}") long windowMs) {
+        return new RecentWrites(Duration.ofMillis(windowMs), 100_000);
+    }
+
+    // Pool démarré à la première connexion, comme celui de l'auto-configuration
+    private static HikariDataSource pool(HikariConfig settings, String url, String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        settings.copyStateTo(dataSource);
+        dataSource.setJdbcUrl(url);
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+}
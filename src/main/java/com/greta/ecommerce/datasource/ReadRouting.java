@@ -0,0 +1,33 @@
+package com.greta.ecommerce.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Force les lectures du thread courant sur le primaire, même dans une transaction en lecture seule.
+ * N'a d'effet que si aucune connexion n'a encore été ouverte dans la transaction.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            } else {
+                PRIMARY_FORCED.set(previous);
+            }
+        }
+    }
+
+    static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.greta.ecommerce.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Envoie les transactions en lecture seule (@Transactional(readOnly = true)) vers un réplica et tout le reste
+ * (écritures, accès hors transaction) vers le primaire. À placer derrière un LazyConnectionDataSourceProxy :
+ * le gestionnaire de transactions ouvre sa connexion avant de publier l'attribut readOnly, le proxy retarde
+ * l'ouverture réelle jusqu'à la première requête.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final DatabaseNodes nodes;
+
+    public ReadWriteRoutingDataSource(DatabaseNodes nodes) {
+        this.nodes = nodes;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(username, password);
+    }
+
+    private Connection connect(String username, String password) throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !ReadRouting.isPrimaryForced()) {
+            Optional<DataSource> replica = nodes.nextReplica();
+            if (replica.isPresent()) {
+                try {
+                    return open(replica.get(), username, password);
+                } catch (SQLException e) {
+                    // Réplica injoignable : écarté jusqu'à la prochaine vérification, lecture sur le primaire
+                    nodes.markDown(replica.get(), e);
+                }
+            }
+        }
+        return open(nodes.primary(), username, password);
+    }
+
+    private static Connection open(DataSource dataSource, String username, String password) throws SQLException {
+        return username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+    }
+}
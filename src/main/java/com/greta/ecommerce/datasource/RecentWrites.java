@@ -0,0 +1,33 @@
+package com.greta.ecommerce.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Commandes écrites récemment sur le primaire : tant que la réplication peut ne pas les avoir reçues,
+ * leur lecture est faite sur le primaire (lecture de ses propres écritures juste après createOrder).
+ * Mémoire locale à l'instance : derrière plusieurs instances, il faut des sessions collantes.
+ */
+public class RecentWrites {
+
+    private final Cache<Long, Boolean> orderIds;
+
+    public RecentWrites(Duration window, long maxSize) {
+        this.orderIds = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public void recordOrder(Long orderId) {
+        if (orderId != null) {
+            orderIds.put(orderId, Boolean.TRUE);
+        }
+    }
+
+    public boolean isRecentOrder(Long orderId) {
+        return orderIds.getIfPresent(orderId) != null;
+    }
+}
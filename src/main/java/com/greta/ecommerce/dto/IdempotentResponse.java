@@ -0,0 +1,35 @@
+package com.greta.ecommerce.dto;
+
+/**
+ * Réponse d'une requête idempotente telle qu'elle est rejouée : statut, Location éventuelle
+ * et corps JSON déjà sérialisé.
+ */
+public class IdempotentResponse {
+    private final String requestHash;
+    private final int statusCode;
+    private final String location;
+    private final String body;
+
+    public IdempotentResponse(String requestHash, int statusCode, String location, String body) {
+        this.requestHash = requestHash;
+        this.statusCode = statusCode;
+        this.location = location;
+        this.body = body;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}
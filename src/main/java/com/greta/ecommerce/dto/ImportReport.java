@@ -0,0 +1,65 @@
+package com.greta.ecommerce.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bilan d'un import en masse : compteurs globaux et détail des lignes rejetées (plafonné).
+ */
+public class ImportReport {
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long rowsRead;
+    private long succeeded;
+    private long failed;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public void rowRead() {
+        rowsRead++;
+    }
+
+    public void succeeded(int count) {
+        succeeded += count;
+    }
+
+    public void failed(long line, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
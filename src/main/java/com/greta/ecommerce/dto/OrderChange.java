@@ -0,0 +1,68 @@
+package com.greta.ecommerce.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * Changement d'une commande lu dans l'outbox. seq est attribué par le relais à la publication ;
+ * order (JSON de la commande complète) n'est présent que pour une création.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderChange {
+
+    public enum Type {
+        CREATED, STATUS_CHANGED
+    }
+
+    private final Long outboxId;
+    private final Long seq;
+    private final Long orderId;
+    private final Type type;
+    private final String status;
+    private final String order;
+    private final LocalDateTime occurredAt;
+
+    public OrderChange(Long outboxId, Long seq, Long orderId, Type type, String status, String order,
+                       LocalDateTime occurredAt) {
+        this.outboxId = outboxId;
+        this.seq = seq;
+        this.orderId = orderId;
+        this.type = type;
+        this.status = status;
+        this.order = order;
+        this.occurredAt = occurredAt;
+    }
+
+    @JsonIgnore
+    public Long getOutboxId() {
+        return outboxId;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    @JsonRawValue
+    public String getOrder() {
+        return order;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
@@ -0,0 +1,21 @@
+package com.greta.ecommerce.dto;
+
+import java.util.List;
+
+public class OrderChangePage {
+    private final List<OrderChange> changes;
+    private final long next; // valeur de since pour l'appel suivant
+
+    public OrderChangePage(List<OrderChange> changes, long next) {
+        this.changes = changes;
+        this.next = next;
+    }
+
+    public List<OrderChange> getChanges() {
+        return changes;
+    }
+
+    public long getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,23 @@
+package com.greta.ecommerce.dto;
+
+import com.greta.ecommerce.entity.Order;
+
+import java.util.List;
+
+public class OrderPage {
+    private final List<Order> orders;
+    private final String nextCursor; // null quand il n'y a plus de page
+
+    public OrderPage(List<Order> orders, String nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
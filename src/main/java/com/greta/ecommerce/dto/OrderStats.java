@@ -0,0 +1,46 @@
+package com.greta.ecommerce.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+
+/**
+ * Agrégat de commandes pour un seau (jour, produit ou statut) : nombre de commandes et quantités commandées.
+ * Seuls les champs qui identifient le seau sont renseignés.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderStats {
+    private final LocalDate day;
+    private final Long productId;
+    private final String status;
+    private final long orders;
+    private final long quantity;
+
+    public OrderStats(LocalDate day, Long productId, String status, long orders, long quantity) {
+        this.day = day;
+        this.productId = productId;
+        this.status = status;
+        this.orders = orders;
+        this.quantity = quantity;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+}
@@ -0,0 +1,52 @@
+package com.greta.ecommerce.dto;
+
+/**
+ * Suivi d'une commande acceptée en mode asynchrone : l'id de commande n'est connu
+ * qu'une fois la commande enregistrée par le pipeline d'ingestion.
+ */
+public class OrderTicket {
+
+    public enum Status {
+        QUEUED, PERSISTED, FAILED
+    }
+
+    private final String ticket;
+    private final Status status;
+    private final Long orderId; // null tant que la commande n'est pas enregistrée
+    private final String error;
+
+    private OrderTicket(String ticket, Status status, Long orderId, String error) {
+        this.ticket = ticket;
+        this.status = status;
+        this.orderId = orderId;
+        this.error = error;
+    }
+
+    public static OrderTicket queued(String ticket) {
+        return new OrderTicket(ticket, Status.QUEUED, null, null);
+    }
+
+    public static OrderTicket persisted(String ticket, Long orderId) {
+        return new OrderTicket(ticket, Status.PERSISTED, orderId, null);
+    }
+
+    public static OrderTicket failed(String ticket, String error) {
+        return new OrderTicket(ticket, Status.FAILED, null, error);
+    }
+
+    public String getTicket() {
+        return ticket;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
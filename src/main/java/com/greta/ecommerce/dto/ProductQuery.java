@@ -0,0 +1,79 @@
+package com.greta.ecommerce.dto;
+
+/**
+ * Paramètres de GET /api/products : filtres, tri, page et projection.
+ * Sans aucun paramètre, la liste complète est servie depuis le cache.
+ */
+public class ProductQuery {
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+
+    private Double minPrice;
+    private Double maxPrice;
+    private Boolean inStock;
+    private String sort;      // ex. "price", "-price", "name"
+    private Integer page;     // à partir de 0
+    private Integer size;
+    private String fields;    // ex. "id,name,price"
+
+    public boolean isEmpty() {
+        return minPrice == null && maxPrice == null && inStock == null && sort == null
+                && page == null && size == null && fields == null;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Boolean getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(Boolean inStock) {
+        this.inStock = inStock;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public Integer getPage() {
+        return page;
+    }
+
+    public void setPage(Integer page) {
+        this.page = page;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public String getFields() {
+        return fields;
+    }
+
+    public void setFields(String fields) {
+        this.fields = fields;
+    }
+}
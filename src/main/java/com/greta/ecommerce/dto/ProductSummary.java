@@ -0,0 +1,73 @@
+package com.greta.ecommerce.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Projection d'un produit pour les listes du catalogue : seuls les champs demandés (fields=) sont renseignés et sérialisés.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductSummary {
+    private Long id;
+    private String name;
+    private String description;
+    private Double price;
+    private Integer stock;
+    private String imageUrl;
+    private Long version;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
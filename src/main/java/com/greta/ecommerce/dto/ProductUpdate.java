@@ -0,0 +1,82 @@
+package com.greta.ecommerce.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Null;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Corps de PUT /api/products/{id} : la fiche du produit, sans le stock, qui ne change que par
+ * PUT /api/products/{id}/stock, les commandes et les ajustements.
+ */
+public class ProductUpdate {
+
+    @NotNull(message = "Le nom est obligatoire")
+    @Size(max = 100, message = "Le nom ne peut pas dépasser 100 caractères")
+    private String name;
+
+    private String description;
+
+    @NotNull(message = "Le prix est obligatoire")
+    @Positive(message = "Le prix doit être positif")
+    @DecimalMax(value = "99999999.99", message = "Le prix ne peut pas dépasser 99999999.99")
+    private Double price;
+
+    @Size(max = 255, message = "L'URL de l'image ne peut pas dépasser 255 caractères")
+    private String imageUrl;
+
+    // Refusé plutôt qu'ignoré : un client qui l'envoie croit le modifier
+    @Null(message = "Le stock se modifie par PUT /api/products/{id}/stock")
+    private Integer stock;
+
+    private Long version; // Version lue par le client : mise à jour refusée (409) si le produit a changé depuis
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
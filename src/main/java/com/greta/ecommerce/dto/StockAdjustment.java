@@ -0,0 +1,39 @@
+package com.greta.ecommerce.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Correction de stock relative : delta positif pour un réassort, négatif pour une sortie.
+ */
+public class StockAdjustment {
+
+    @NotNull(message = "L'ID du produit est obligatoire")
+    private Long productId;
+
+    @NotNull(message = "La variation de stock est obligatoire")
+    private Integer delta;
+
+    public StockAdjustment() {
+    }
+
+    public StockAdjustment(Long productId, Integer delta) {
+        this.productId = productId;
+        this.delta = delta;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Integer delta) {
+        this.delta = delta;
+    }
+}
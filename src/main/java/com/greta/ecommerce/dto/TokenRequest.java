@@ -0,0 +1,28 @@
+package com.greta.ecommerce.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class TokenRequest {
+
+    @NotBlank(message = "L'identifiant est obligatoire")
+    private String username;
+
+    @NotBlank(message = "Le mot de passe est obligatoire")
+    private String password;
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+}
@@ -0,0 +1,24 @@
+package com.greta.ecommerce.dto;
+
+public class TokenResponse {
+    private final String token;
+    private final String tokenType = "Bearer";
+    private final long expiresIn; // en secondes
+
+    public TokenResponse(String token, long expiresIn) {
+        this.token = token;
+        this.expiresIn = expiresIn;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+}
@@ -15,6 +15,7 @@ public class Order {
     private LocalDateTime date; // Géré par le service
     private String status; // Géré par le service
     private List<OrderItem> items;
+    private Long version; // Géré par le repository
 
     // Constructeur par défaut
     public Order() {
@@ -73,6 +74,14 @@ public class Order {
         this.items = items;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Order{" +
@@ -81,6 +90,7 @@ public class Order {
                 ", date=" + date +
                 ", status='" + status + '\'' +
                 ", items=" + items +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 // Product.java
 package com.greta.ecommerce.entity;
 
+import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 
 import java.math.BigDecimal;
 
@@ -11,20 +13,25 @@ public class Product {
     private Long id;
 
     @NotNull(message = "Le nom est obligatoire")
+    @Size(max = 100, message = "Le nom ne peut pas dépasser 100 caractères")
     private String name;
 
     private String description;
 
     @NotNull(message = "Le prix est obligatoire")
     @Positive(message = "Le prix doit être positif")
+    @DecimalMax(value = "99999999.99", message = "Le prix ne peut pas dépasser 99999999.99") // DECIMAL(10,2)
     private Double price;
 
     @NotNull(message = "Le stock est obligatoire")
     @Min(value = 0, message = "Le stock ne peut pas être négatif")
     private Integer stock;
 
+    @Size(max = 255, message = "L'URL de l'image ne peut pas dépasser 255 caractères")
     private String imageUrl;
 
+    private Long version; // Géré par le repository ; renvoyé par le client pour une mise à jour optimiste
+
     // Constructeur par défaut
     public Product() {
     }
@@ -91,6 +98,14 @@ public class Product {
         this.imageUrl = imageUrl;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Product{" +
@@ -100,6 +115,7 @@ public class Product {
                 ", price=" + price +
                 ", stock=" + stock +
                 ", imageUrl='" + imageUrl + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,323 @@
+package com.greta.ecommerce.event;
+
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.stock.StockLedger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Diffusion en Server-Sent Events des variations de stock et des changements de statut de commande,
+ * alimentée après commit par les événements des repositories et d'OrderService.
+ * <p>
+ * Les connexions inactives ne tiennent aucun thread (requête asynchrone) ; chaque abonné a un tampon
+ * borné où une nouvelle valeur remplace la précédente pour la même clé, si bien qu'un client lent ne
+ * reçoit que le dernier état. Un tampon qui déborde est vidé et le client reçoit "resync" pour relire l'état.
+ * Les stocks modifiés sont relus en une requête par intervalle de flush, quel que soit le nombre d'écritures.
+ */
+@Component
+public class ChangeEventBus implements SmartLifecycle {
+
+    // Deltas envoyés : "stock" (stock null si le produit a été supprimé) et "order-status"
+    public record StockDelta(Long id, Integer stock) {
+    }
+
+    public record OrderStatusDelta(Long id, String status) {
+    }
+
+    private final ProductRepository productRepository;
+    private final StockLedger stockLedger; // null hors mode registre de stock
+    private final long timeoutMs;
+    private final int bufferSize;
+    private final int maxSubscribers;
+
+    // Un thread virtuel par envoi en cours : un client lent ne bloque que son propre envoi
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Set<Subscriber> allProducts = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscriber>> byProduct = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> byOrder = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyProducts = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+
+    @Autowired
+    public ChangeEventBus(ProductRepository productRepository,
+                          ObjectProvider<StockLedger> stockLedger,
+                          @Value("${ecommerce.events.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${ecommerce.events.buffer-size:256}") int bufferSize,
+                          @Value("${ecommerce.events.max-subscribers:50000}") int maxSubscribers) {
+        this(productRepository, stockLedger.getIfAvailable(), timeoutMs, bufferSize, maxSubscribers);
+    }
+
+    ChangeEventBus(ProductRepository productRepository, StockLedger stockLedger,
+                   long timeoutMs, int bufferSize, int maxSubscribers) {
+        this.productRepository = productRepository;
+        this.stockLedger = stockLedger;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    // ids vide ou null : tous les produits
+    public SseEmitter subscribeProducts(Set<Long> ids) {
+        return subscribe(ids == null || ids.isEmpty() ? null : Set.copyOf(ids), allProducts, byProduct);
+    }
+
+    public SseEmitter subscribeOrders(Set<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids is required");
+        }
+        return subscribe(Set.copyOf(ids), null, byOrder);
+    }
+
+    private SseEmitter subscribe(Set<Long> ids, Set<Subscriber> all, Map<Long, Set<Subscriber>> index) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, bufferSize, senders);
+        subscriber.onClose = () -> {
+            subscribers.remove(subscriber);
+            subscriberCount.decrementAndGet();
+            if (ids == null) {
+                all.remove(subscriber);
+            } else {
+                for (Long id : ids) {
+                    index.computeIfPresent(id, (key, set) -> {
+                        set.remove(subscriber);
+                        return set.isEmpty() ? null : set;
+                    });
+                }
+            }
+        };
+        subscribers.add(subscriber);
+        if (ids == null) {
+            all.add(subscriber);
+        } else {
+            for (Long id : ids) {
+                index.compute(id, (key, set) -> {
+                    Set<Subscriber> target = set != null ? set : ConcurrentHashMap.newKeySet();
+                    target.add(subscriber);
+                    return target;
+                });
+            }
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(() -> {
+            subscriber.close();
+            // Fin normale du flux ; l'AsyncRequestTimeoutException levée ensuite par Spring
+            // est absorbée par GlobalExceptionHandler
+            emitter.complete();
+        });
+        emitter.onError(error -> subscriber.close());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    // Les stocks ne sont relus que s'ils intéressent au moins un abonné
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        markDirty(event.getProductId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        event.getProductIds().forEach(this::markDirty);
+    }
+
+    private void markDirty(Long productId) {
+        if (!allProducts.isEmpty() || byProduct.containsKey(productId)) {
+            dirtyProducts.add(productId);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Set<Subscriber> targets = byOrder.get(event.getOrderId());
+        if (targets != null) {
+            OrderStatusDelta delta = new OrderStatusDelta(event.getOrderId(), event.getStatus());
+            targets.forEach(subscriber -> subscriber.offer("o" + event.getOrderId(), "order-status", delta));
+        }
+    }
+
+    // Une seule lecture des stocks modifiés depuis le flush précédent, puis diffusion aux abonnés
+    @Scheduled(fixedDelayString = "${ecommerce.events.flush-interval-ms:200}")
+    public void flushStockChanges() {
+        if (dirtyProducts.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> it = dirtyProducts.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        Map<Long, Integer> stocks = productRepository.findStocks(ids);
+        for (Long id : ids) {
+            Integer stock = stocks.get(id);
+            if (stock != null && stockLedger != null) {
+                stock = (int) stockLedger.available(id);
+            }
+            StockDelta delta = new StockDelta(id, stock);
+            allProducts.forEach(subscriber -> subscriber.offer("p" + id, "stock", delta));
+            Set<Subscriber> targets = byProduct.get(id);
+            if (targets != null) {
+                targets.forEach(subscriber -> subscriber.offer("p" + id, "stock", delta));
+            }
+        }
+    }
+
+    // Commentaire SSE périodique : garde la connexion ouverte à travers les proxys et détecte les clients partis
+    @Scheduled(fixedDelayString = "${ecommerce.events.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        subscribers.forEach(Subscriber::heartbeat);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Abonné SSE : les deltas en attente sont indexés par clé (une valeur par produit ou commande),
+     * envoyés par au plus un thread à la fois.
+     */
+    static final class Subscriber {
+        final SseEmitter emitter;
+        private final int bufferSize;
+        private final Executor executor;
+        private final Map<String, Object[]> pending = new LinkedHashMap<>(); // clé -> {nom d'événement, delta}
+        private boolean draining;
+        private boolean resync;
+        private boolean heartbeat;
+        private boolean closed;
+        Runnable onClose = () -> { };
+
+        Subscriber(SseEmitter emitter, int bufferSize, Executor executor) {
+            this.emitter = emitter;
+            this.bufferSize = bufferSize;
+            this.executor = executor;
+        }
+
+        void offer(String key, String eventName, Object delta) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                pending.put(key, new Object[]{eventName, delta});
+                if (pending.size() > bufferSize) {
+                    pending.clear();
+                    resync = true;
+                }
+                if (!schedule()) {
+                    return;
+                }
+            }
+            executor.execute(this::drain);
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                heartbeat = true;
+                if (!schedule()) {
+                    return;
+                }
+            }
+            executor.execute(this::drain);
+        }
+
+        private boolean schedule() {
+            if (draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+
+        private void drain() {
+            while (true) {
+                List<Object[]> batch;
+                boolean sendResync;
+                boolean sendHeartbeat;
+                synchronized (this) {
+                    if (closed || (pending.isEmpty() && !resync && !heartbeat)) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.values());
+                    pending.clear();
+                    sendResync = resync;
+                    sendHeartbeat = heartbeat;
+                    resync = false;
+                    heartbeat = false;
+                }
+                try {
+                    if (sendResync) {
+                        emitter.send(SseEmitter.event().name("resync").data(""));
+                    }
+                    for (Object[] event : batch) {
+                        emitter.send(SseEmitter.event().name((String) event[0]).data(event[1], MediaType.APPLICATION_JSON));
+                    }
+                    if (sendHeartbeat && batch.isEmpty() && !sendResync) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client parti : le conteneur signale l'erreur à l'emitter, on se retire sans attendre
+                    close();
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            }
+            onClose.run();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.greta.ecommerce.event;
+
+/**
+ * Publié par OrderService quand le statut d'une commande change (mise à jour ou annulation).
+ */
+public class OrderStatusChangedEvent {
+
+    private final Long orderId;
+    private final String status;
+
+    public OrderStatusChangedEvent(Long orderId, String status) {
+        this.orderId = orderId;
+        this.status = status;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,36 @@
+package com.greta.ecommerce.event;
+
+import com.greta.ecommerce.entity.Product;
+
+/**
+ * Publié par ProductRepository après chaque création, modification ou suppression d'un produit,
+ * ainsi qu'après une correction de stock seule (STOCK_CHANGED, sans le produit).
+ */
+public class ProductChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED, STOCK_CHANGED
+    }
+
+    private final Type type;
+    private final Long productId;
+    private final Product product; // null pour une suppression ou une correction de stock
+
+    public ProductChangedEvent(Type type, Long productId, Product product) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+}
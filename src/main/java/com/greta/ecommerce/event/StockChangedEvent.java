@@ -0,0 +1,21 @@
+package com.greta.ecommerce.event;
+
+import java.util.Collection;
+
+/**
+ * Publié par ProductRepository après une réservation, une remise en stock ou un report du StockLedger :
+ * seul le stock des produits a changé. Distinct de ProductChangedEvent.STOCK_CHANGED (correction manuelle),
+ * qui oblige le StockLedger à recharger ses compteurs.
+ */
+public class StockChangedEvent {
+
+    private final Collection<Long> productIds;
+
+    public StockChangedEvent(Collection<Long> productIds) {
+        this.productIds = productIds;
+    }
+
+    public Collection<Long> getProductIds() {
+        return productIds;
+    }
+}
@@ -1,5 +1,7 @@
 package com.greta.ecommerce.exception;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -8,12 +10,15 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.server.ResponseStatusException;
 
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestControllerAdvice
@@ -98,4 +103,56 @@ public class GlobalExceptionHandler {
                 .status(HttpStatus.NOT_FOUND)  // 404 Not Found
                 .body("Ressource non trouvée : " + ex.getMessage());
     }
+
+    // File d'ingestion saturée : le client est invité à réessayer
+    @ExceptionHandler(OrderQueueFullException.class)
+    public ResponseEntity<String> handleOrderQueueFullException(OrderQueueFullException ex) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Service saturé : " + ex.getMessage());
+    }
+
+    // Mise à jour concurrente détectée par la version : le client relit puis réessaie
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<Map<String, Object>> handleVersionConflictException(VersionConflictException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", "Conflit de version : " + ex.getMessage());
+        body.put("id", ex.getId());
+        body.put("currentVersion", ex.getCurrentVersion());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(body);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body("Pagination invalide : " + ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidQueryException.class)
+    public ResponseEntity<String> handleInvalidQueryException(InvalidQueryException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body("Paramètre invalide : " + ex.getMessage());
+    }
+
+    // Flux SSE arrivé au bout de son délai : la réponse est déjà engagée, elle se termine sans corps d'erreur
+    // (le handler générique tentait d'y écrire un 500)
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public void handleAsyncRequestTimeoutException(HttpServletResponse response) {
+        if (!response.isCommitted()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+
+    // Sans ce handler, le handler générique ci-dessus transformait les 404/400 des contrôleurs en 500
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException ex) {
+        return ResponseEntity
+                .status(ex.getStatusCode())
+                .body(ex.getReason());
+    }
 }
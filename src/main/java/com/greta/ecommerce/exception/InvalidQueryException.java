@@ -0,0 +1,7 @@
+package com.greta.ecommerce.exception;
+
+public class InvalidQueryException extends RuntimeException {
+    public InvalidQueryException(String message) {
+        super(message);
+    }
+}
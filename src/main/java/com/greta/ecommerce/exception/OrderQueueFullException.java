@@ -0,0 +1,7 @@
+package com.greta.ecommerce.exception;
+
+public class OrderQueueFullException extends RuntimeException {
+    public OrderQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.greta.ecommerce.exception;
+
+// Modification refusée : la ressource a changé depuis la version lue par le client
+public class VersionConflictException extends RuntimeException {
+    private final Long id;
+    private final long currentVersion;
+
+    public VersionConflictException(Long id, long currentVersion) {
+        super("Resource " + id + " has been modified, current version is " + currentVersion);
+        this.id = id;
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,51 @@
+package com.greta.ecommerce.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Active la trace SQL pour une requête portant l'en-tête X-Sql-Trace, si l'option est autorisée.
+ * L'autorisation se bascule à chaud, sans redémarrage ni passage global en DEBUG.
+ */
+@Component
+public class SqlTraceFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-Sql-Trace";
+    static final String MDC_KEY = "sqlTrace";
+
+    private volatile boolean enabled;
+
+    public SqlTraceFilter(@Value("${ecommerce.logging.sql-trace.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!enabled || request.getHeader(HEADER) == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        MDC.put(MDC_KEY, "on");
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_KEY);
+        }
+    }
+}
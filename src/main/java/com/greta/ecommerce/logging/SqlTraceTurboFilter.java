@@ -0,0 +1,24 @@
+package com.greta.ecommerce.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Laisse passer les logs SQL de JdbcTemplate (requête et paramètres) pour le seul thread
+ * dont le MDC porte la clé {@value SqlTraceFilter#MDC_KEY}, quel que soit le niveau configuré.
+ */
+public class SqlTraceTurboFilter extends TurboFilter {
+    private static final String JDBC_LOGGER_PREFIX = "org.springframework.jdbc.core";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (logger.getName().startsWith(JDBC_LOGGER_PREFIX) && MDC.get(SqlTraceFilter.MDC_KEY) != null) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
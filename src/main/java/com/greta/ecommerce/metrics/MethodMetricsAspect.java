@@ -0,0 +1,81 @@
+package com.greta.ecommerce.metrics;
+
+import com.greta.ecommerce.exception.StockException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chronomètre chaque méthode publique des repositories et de OrderService, compte les lignes
+ * renvoyées et les conflits de réservation de stock.
+ */
+@Aspect
+@Component
+public class MethodMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rows = new ConcurrentHashMap<>();
+    private final Counter stockConflicts;
+
+    public MethodMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.stockConflicts = Counter.builder("ecommerce.stock.reservation.conflicts")
+                .description("Commandes refusées faute de stock")
+                .register(meterRegistry);
+    }
+
+    @Around("execution(public * com.greta.ecommerce.repository.*Repository.*(..))"
+            + " || execution(public * com.greta.ecommerce.service.OrderService.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String className = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String methodName = joinPoint.getSignature().getName();
+        String key = className + "." + methodName;
+
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            recordRows(key, className, methodName, result);
+            return result;
+        } catch (StockException e) {
+            stockConflicts.increment();
+            throw e;
+        } finally {
+            timers.computeIfAbsent(key, k -> Timer.builder("ecommerce.method")
+                            .description("Durée des méthodes de repository et de service")
+                            .tag("class", className)
+                            .tag("method", methodName)
+                            .publishPercentileHistogram()
+                            .register(meterRegistry))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void recordRows(String key, String className, String methodName, Object result) {
+        int count;
+        if (result instanceof Collection<?> collection) {
+            count = collection.size();
+        } else if (result instanceof Optional<?> optional) {
+            count = optional.isPresent() ? 1 : 0;
+        } else {
+            return;
+        }
+        rows.computeIfAbsent(key, k -> DistributionSummary.builder("ecommerce.method.rows")
+                        .description("Lignes renvoyées par appel")
+                        .tag("class", className)
+                        .tag("method", methodName)
+                        .register(meterRegistry))
+                .record(count);
+    }
+}
@@ -0,0 +1,65 @@
+package com.greta.ecommerce.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Enveloppe le DataSource applicatif pour compter les statements préparés par le thread courant.
+ * La fermeture est relayée au pool enveloppé, que Spring ferme ainsi à l'arrêt.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource implements AutoCloseable {
+    private static final ThreadLocal<int[]> STATEMENTS = ThreadLocal.withInitial(() -> new int[1]);
+
+    public StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    /**
+     * Renvoie le nombre de statements comptés sur ce thread depuis le dernier appel, puis le remet à zéro.
+     */
+    public static int drainCount() {
+        int[] counter = STATEMENTS.get();
+        int count = counter[0];
+        counter[0] = 0;
+        return count;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable target) {
+            target.close();
+        }
+    }
+
+    private static Connection counting(Connection target) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("prepareStatement") || name.equals("createStatement") || name.equals("prepareCall")) {
+                        STATEMENTS.get()[0]++;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
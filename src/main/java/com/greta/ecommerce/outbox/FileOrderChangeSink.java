@@ -0,0 +1,51 @@
+package com.greta.ecommerce.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.dto.OrderChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Ajoute chaque lot au fichier, un changement JSON par ligne, synchronisé sur disque avant d'être marqué publié
+@Component
+@ConditionalOnProperty(name = "ecommerce.outbox.sink", havingValue = "file")
+public class FileOrderChangeSink implements OrderChangeSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileOrderChangeSink(@Value("${ecommerce.outbox.file:data/order-changes.jsonl}") Path file,
+                               ObjectMapper objectMapper) throws IOException {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+    }
+
+    @Override
+    public void publish(List<OrderChange> changes) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (OrderChange change : changes) {
+            lines.write(objectMapper.writeValueAsBytes(change));
+            lines.write('\n');
+        }
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.greta.ecommerce.outbox;
+
+import com.greta.ecommerce.dto.OrderChange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Garde les changements publiés en mémoire, sans limite : pour les tests et le développement local
+@Component
+@ConditionalOnProperty(name = "ecommerce.outbox.sink", havingValue = "memory")
+public class InMemoryOrderChangeSink implements OrderChangeSink {
+
+    private final List<OrderChange> changes = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<OrderChange> published) {
+        changes.addAll(published);
+    }
+
+    public synchronized List<OrderChange> getChanges() {
+        return List.copyOf(changes);
+    }
+}
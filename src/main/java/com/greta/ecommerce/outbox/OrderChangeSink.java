@@ -0,0 +1,16 @@
+package com.greta.ecommerce.outbox;
+
+import com.greta.ecommerce.dto.OrderChange;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination des changements publiés par le relais (ecommerce.outbox.sink = file ou memory).
+ * Le sink ne reçoit que des changements dont le seq est déjà validé. Un lot peut être renvoyé si la position
+ * du sink n'a pas pu être validée après l'envoi, toujours avec les mêmes seq : seq permet de dédoublonner.
+ */
+public interface OrderChangeSink {
+
+    void publish(List<OrderChange> changes) throws IOException;
+}
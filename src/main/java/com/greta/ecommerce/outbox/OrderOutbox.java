@@ -0,0 +1,72 @@
+package com.greta.ecommerce.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.dto.OrderChange;
+import com.greta.ecommerce.dto.OrderChangePage;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.repository.OrderOutboxRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outbox des commandes : chaque création ou changement de statut y est écrit dans la transaction
+ * de la commande, puis publié par {@link OrderOutboxRelay}. Les consommateurs lisent les changements
+ * publiés par position (seq) au lieu de relire toute la table orders.
+ */
+@Component
+public class OrderOutbox {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public OrderOutbox(OrderOutboxRepository orderOutboxRepository, ObjectMapper objectMapper) {
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Commandes tout juste enregistrées (ids et items renseignés), dans la transaction appelante
+    public void recordCreated(List<Order> orders) {
+        List<OrderChange> changes = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            changes.add(new OrderChange(null, null, order.getId(), OrderChange.Type.CREATED,
+                    order.getStatus(), toJson(order), order.getDate()));
+        }
+        orderOutboxRepository.saveAll(changes);
+    }
+
+    public void recordStatusChange(Order order) {
+        orderOutboxRepository.saveAll(List.of(new OrderChange(null, null, order.getId(),
+                OrderChange.Type.STATUS_CHANGED, order.getStatus(), null, null)));
+    }
+
+    /**
+     * Changements publiés après la position since (0 pour tout relire). Une position déjà purgée
+     * renvoie 410 : le consommateur doit repartir d'une lecture complète des commandes.
+     */
+    @Transactional(readOnly = true)
+    public OrderChangePage changesSince(long since, int limit) {
+        if (since < orderOutboxRepository.findPurgedSeq()) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Changes before " + since + " have been purged");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<OrderChange> changes = orderOutboxRepository.findPublishedAfter(since, pageSize);
+        long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        return new OrderChangePage(changes, next);
+    }
+
+    private String toJson(Order order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Order cannot be serialized", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.greta.ecommerce.outbox;
+
+import com.greta.ecommerce.dto.OrderChange;
+import com.greta.ecommerce.repository.OrderOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Relais de l'outbox : publie les changements en attente par lots, dans l'ordre d'écriture.
+ * <p>
+ * Un lot est publié dans une transaction qui verrouille la position du relais, attribue les seq suivants
+ * et valide. Les seq ne sont visibles qu'une fois validés, dans l'ordre, d'où un flux sans trou pour
+ * /api/orders/changes même quand les commandes sont validées dans le désordre.
+ * <p>
+ * Le sink ne reçoit que des changements déjà validés, relus par seq depuis sa propre position : si l'envoi
+ * ou la validation de cette position échoue, le lot est renvoyé au passage suivant avec les mêmes seq.
+ */
+@Component
+public class OrderOutboxRelay {
+    private static final Logger log = LoggerFactory.getLogger(OrderOutboxRelay.class);
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final OrderChangeSink sink; // null : changements seulement exposés par /api/orders/changes
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retention;
+
+    public OrderOutboxRelay(OrderOutboxRepository orderOutboxRepository,
+                            ObjectProvider<OrderChangeSink> sink,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${ecommerce.outbox.batch-size:500}") int batchSize,
+                            @Value("${ecommerce.outbox.retention-hours:168}") long retentionHours) {
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.sink = sink.getIfAvailable();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    // Vide l'outbox tant que les lots sont pleins, puis envoie au sink ce qu'il n'a pas encore reçu
+    @Scheduled(fixedDelayString = "${ecommerce.outbox.relay-interval-ms:500}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = relayBatch();
+            } while (published == batchSize);
+            if (sink != null) {
+                int delivered;
+                do {
+                    delivered = deliverBatch();
+                } while (delivered == batchSize);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Publication de l'outbox interrompue, reprise au prochain passage", e);
+        }
+    }
+
+    /**
+     * Publie au plus un lot : attribue les seq suivants et valide.
+     *
+     * @return le nombre de changements publiés
+     */
+    public int relayBatch() {
+        return transactionTemplate.execute(status -> {
+            long lastSeq = orderOutboxRepository.lockRelayPosition();
+            List<OrderChange> pending = orderOutboxRepository.findUnpublished(batchSize);
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            orderOutboxRepository.markPublished(pending, lastSeq);
+            return pending.size();
+        });
+    }
+
+    /**
+     * Envoie au sink au plus un lot de changements publiés qu'il n'a pas encore reçus.
+     *
+     * @return le nombre de changements envoyés
+     */
+    public int deliverBatch() {
+        return transactionTemplate.execute(status -> {
+            long deliveredSeq = orderOutboxRepository.lockDeliveredPosition();
+            List<OrderChange> published = orderOutboxRepository.findPublishedAfter(deliveredSeq, batchSize);
+            if (published.isEmpty()) {
+                return 0;
+            }
+            try {
+                sink.publish(published);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            orderOutboxRepository.markDelivered(published.get(published.size() - 1).getSeq());
+            return published.size();
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.outbox.purge-interval-ms:3600000}")
+    public void purgePublished() {
+        // Suppression et purged_seq ensemble : un consommateur en retard ne doit jamais voir un trou sans 410
+        // Jamais au-delà de ce que le sink a reçu
+        int deleted = transactionTemplate.execute(status -> orderOutboxRepository.deletePublishedBefore(
+                LocalDateTime.now().minus(retention),
+                sink == null ? Long.MAX_VALUE : orderOutboxRepository.findDeliveredSeq()));
+        if (deleted > 0) {
+            log.debug("Purged {} published order changes", deleted);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.greta.ecommerce.repository;
+
+import com.greta.ecommerce.dto.IdempotentResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public class IdempotentRequestRepository {
+
+    private static final RowMapper<IdempotentResponse> RESPONSE_ROW_MAPPER = (rs, rowNum) -> new IdempotentResponse(
+            rs.getString("request_hash"),
+            rs.getInt("status_code"),
+            rs.getString("location"),
+            rs.getString("response_body")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotentRequestRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Les réponses enregistrées avant notBefore sont considérées comme expirées
+    public Optional<IdempotentResponse> findByKey(String key, LocalDateTime notBefore) {
+        return jdbcTemplate.query(
+                "SELECT * FROM idempotent_request WHERE request_key = ? AND created_at >= ?",
+                RESPONSE_ROW_MAPPER, key, Timestamp.valueOf(notBefore)).stream().findFirst();
+    }
+
+    // Libère la clé si sa réponse a expiré sans avoir encore été purgée
+    public void deleteExpired(String key, LocalDateTime notBefore) {
+        jdbcTemplate.update("DELETE FROM idempotent_request WHERE request_key = ? AND created_at < ?",
+                key, Timestamp.valueOf(notBefore));
+    }
+
+    // Lève DuplicateKeyException si la clé a déjà été enregistrée (par une autre instance)
+    public void save(String key, IdempotentResponse response) {
+        jdbcTemplate.update(
+                "INSERT INTO idempotent_request (request_key, request_hash, status_code, location, response_body, created_at) VALUES (?, ?, ?, ?, ?, ?)",
+                key,
+                response.getRequestHash(),
+                response.getStatusCode(),
+                response.getLocation(),
+                response.getBody(),
+                Timestamp.valueOf(LocalDateTime.now())
+        );
+    }
+
+    public int deleteOlderThan(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM idempotent_request WHERE created_at < ?", Timestamp.valueOf(cutoff));
+    }
+}
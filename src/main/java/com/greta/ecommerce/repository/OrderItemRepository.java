@@ -1,13 +1,37 @@
 package com.greta.ecommerce.repository;
 
 import com.greta.ecommerce.entity.OrderItem;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class OrderItemRepository {
+    // Nombre maximum d'identifiants par clause IN
+    static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
+    static final String FIND_BY_ORDER_ID_SQL = "SELECT * FROM order_item WHERE order_id = ?";
+
+    private static final RowMapper<OrderItem> ORDER_ITEM_ROW_MAPPER = (rs, rowNum) ->
+            new OrderItem(
+                    rs.getLong("id"),
+                    rs.getLong("order_id"),
+                    rs.getLong("product_id"),
+                    rs.getInt("quantity")
+            );
+
     private final JdbcTemplate jdbcTemplate;
 
     public OrderItemRepository(JdbcTemplate jdbcTemplate) {
@@ -15,14 +39,30 @@ public class OrderItemRepository {
     }
 
     public List<OrderItem> findByOrderId(Long orderId) {
-        String sql = "SELECT * FROM order_item WHERE order_id = ?";
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                new OrderItem(
-                        rs.getLong("id"),
-                        rs.getLong("order_id"),
-                        rs.getLong("product_id"),
-                        rs.getInt("quantity")
-                ), orderId);
+        return jdbcTemplate.query(FIND_BY_ORDER_ID_SQL, ORDER_ITEM_ROW_MAPPER, orderId);
+    }
+
+    /**
+     * Charge les items de plusieurs commandes en une requête par tranche de
+     * {@value #IN_CLAUSE_CHUNK_SIZE} identifiants, regroupés par commande.
+     */
+    public Map<Long, List<OrderItem>> findByOrderIds(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Long> ids = new ArrayList<>(orderIds);
+        Map<Long, List<OrderItem>> itemsByOrderId = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT * FROM order_item WHERE order_id IN (" + placeholders + ")";
+            jdbcTemplate.query(sql, rs -> {
+                OrderItem item = ORDER_ITEM_ROW_MAPPER.mapRow(rs, 0);
+                itemsByOrderId.computeIfAbsent(item.getOrderId(), k -> new ArrayList<>()).add(item);
+            }, chunk.toArray());
+        }
+        return itemsByOrderId;
     }
 
     public void save(OrderItem orderItem) {
@@ -34,9 +74,40 @@ public class OrderItemRepository {
         );
     }
 
-    public void saveAll(List<OrderItem> items) {
-        for (OrderItem item : items) {
-            save(item);
+    /**
+     * Insère tous les items en un seul batch JDBC (un INSERT multi-lignes avec
+     * rewriteBatchedStatements côté MySQL) et renseigne les ids générés.
+     */
+    public List<OrderItem> saveAll(List<OrderItem> items) {
+        if (items.isEmpty()) {
+            return items;
+        }
+
+        String sql = "INSERT INTO order_item (order_id, product_id, quantity) VALUES (?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderItem item = items.get(i);
+                        ps.setLong(1, item.getOrderId());
+                        ps.setLong(2, item.getProductId());
+                        ps.setInt(3, item.getQuantity());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return items.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < items.size() && i < keys.size(); i++) {
+            Object id = keys.get(i).values().iterator().next();
+            items.get(i).setId(((Number) id).longValue());
         }
+        return items;
     }
 }
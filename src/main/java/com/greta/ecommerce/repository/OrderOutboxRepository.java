@@ -0,0 +1,132 @@
+package com.greta.ecommerce.repository;
+
+import com.greta.ecommerce.dto.OrderChange;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class OrderOutboxRepository {
+    // Requêtes de recherche dont le plan est vérifié au démarrage (QueryPlanVerifier)
+    static final String FIND_UNPUBLISHED_SQL = "SELECT * FROM order_outbox WHERE seq IS NULL ORDER BY id LIMIT ?";
+    static final String FIND_PUBLISHED_AFTER_SQL = "SELECT * FROM order_outbox WHERE seq > ? ORDER BY seq LIMIT ?";
+
+    private static final RowMapper<OrderChange> CHANGE_ROW_MAPPER = (rs, rowNum) -> new OrderChange(
+            rs.getLong("id"),
+            rs.getObject("seq", Long.class),
+            rs.getLong("order_id"),
+            OrderChange.Type.valueOf(rs.getString("change_type")),
+            rs.getString("status"),
+            rs.getString("payload"),
+            rs.getTimestamp("created_at").toLocalDateTime()
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Appelé dans la transaction de la commande, en un seul batch
+    public void saveAll(List<OrderChange> changes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_outbox (order_id, change_type, status, payload, created_at) VALUES (?, ?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderChange change = changes.get(i);
+                        ps.setLong(1, change.getOrderId());
+                        ps.setString(2, change.getType().name());
+                        ps.setString(3, change.getStatus());
+                        ps.setString(4, change.getOrder());
+                        ps.setTimestamp(5, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return changes.size();
+                    }
+                });
+    }
+
+    // Verrouille la position du relais jusqu'à la fin de la transaction
+    public long lockRelayPosition() {
+        return jdbcTemplate.queryForObject("SELECT last_seq FROM order_outbox_relay WHERE id = 1 FOR UPDATE", Long.class);
+    }
+
+    public long findPurgedSeq() {
+        return jdbcTemplate.queryForObject("SELECT purged_seq FROM order_outbox_relay WHERE id = 1", Long.class);
+    }
+
+    // Lignes pas encore publiées, dans l'ordre d'écriture (index unique sur seq, complété par la clé primaire)
+    public List<OrderChange> findUnpublished(int limit) {
+        return jdbcTemplate.query(FIND_UNPUBLISHED_SQL, CHANGE_ROW_MAPPER, limit);
+    }
+
+    /**
+     * Attribue aux lignes données les seq suivant lastSeq, dans l'ordre de la liste, et avance la position du relais.
+     * À appeler sous le verrou de {@link #lockRelayPosition()}.
+     */
+    public void markPublished(List<OrderChange> changes, long lastSeq) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("UPDATE order_outbox SET seq = ?, published_at = ? WHERE id = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, lastSeq + 1 + i);
+                        ps.setTimestamp(2, now);
+                        ps.setLong(3, changes.get(i).getOutboxId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return changes.size();
+                    }
+                });
+        jdbcTemplate.update("UPDATE order_outbox_relay SET last_seq = ? WHERE id = 1", lastSeq + changes.size());
+    }
+
+    // Verrouille la position du sink jusqu'à la fin de la transaction
+    public long lockDeliveredPosition() {
+        return jdbcTemplate.queryForObject("SELECT delivered_seq FROM order_outbox_sink WHERE id = 1 FOR UPDATE", Long.class);
+    }
+
+    public long findDeliveredSeq() {
+        return jdbcTemplate.queryForObject("SELECT delivered_seq FROM order_outbox_sink WHERE id = 1", Long.class);
+    }
+
+    // À appeler sous le verrou de {@link #lockDeliveredPosition()}
+    public void markDelivered(long deliveredSeq) {
+        jdbcTemplate.update("UPDATE order_outbox_sink SET delivered_seq = ? WHERE id = 1", deliveredSeq);
+    }
+
+    // Changements publiés après since, par seq croissant
+    public List<OrderChange> findPublishedAfter(long since, int limit) {
+        return jdbcTemplate.query(FIND_PUBLISHED_AFTER_SQL, CHANGE_ROW_MAPPER, since, limit);
+    }
+
+    /**
+     * Supprime les changements publiés avant cutoff, sans dépasser maxSeq, et retient le dernier seq supprimé.
+     *
+     * @return le nombre de lignes supprimées
+     */
+    public int deletePublishedBefore(LocalDateTime cutoff, long maxSeq) {
+        Long purgedSeq = jdbcTemplate.queryForObject(
+                "SELECT MAX(seq) FROM order_outbox WHERE seq IS NOT NULL AND seq <= ? AND published_at < ?",
+                Long.class, maxSeq, Timestamp.valueOf(cutoff));
+        if (purgedSeq == null) {
+            return 0;
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM order_outbox WHERE seq <= ?", purgedSeq);
+        jdbcTemplate.update("UPDATE order_outbox_relay SET purged_seq = GREATEST(purged_seq, ?) WHERE id = 1", purgedSeq);
+        return deleted;
+    }
+}
@@ -1,20 +1,53 @@
 package com.greta.ecommerce.repository;
 
+import com.greta.ecommerce.dto.OrderCursor;
 import com.greta.ecommerce.entity.Order;
 import com.greta.ecommerce.entity.OrderItem;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.sql.PreparedStatement;
-import java.sql.Statement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 public class OrderRepository {
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    // Requêtes de recherche dont le plan est vérifié au démarrage (QueryPlanVerifier)
+    static final String FIND_BY_ID_SQL = "SELECT * FROM orders WHERE id = ?";
+    static final String FIND_BY_EMAIL_SQL = "SELECT * FROM orders WHERE email = ?";
+    static final String FIND_BY_STATUS_SQL = "SELECT * FROM orders WHERE status = ?";
+    static final String FIND_PAGE_AFTER_SQL =
+            "SELECT * FROM orders WHERE date > ? OR (date = ? AND id > ?) ORDER BY date, id LIMIT ?";
+
+    private static final String INSERT_SQL = "INSERT INTO orders (email, date, status) VALUES (?, ?, ?)";
+
+    private static final RowMapper<Order> ORDER_ROW_MAPPER = (rs, rowNum) -> {
+        Order order = new Order(
+                rs.getLong("id"),
+                rs.getString("email"),
+                rs.getTimestamp("date").toLocalDateTime(),
+                rs.getString("status"),
+                null
+        );
+        order.setVersion(rs.getLong("version"));
+        return order;
+    };
+
     private final JdbcTemplate jdbcTemplate;
     private final OrderItemRepository orderItemRepository;
 
@@ -25,34 +58,12 @@ public class OrderRepository {
 
     public List<Order> findAll() {
         String sql = "SELECT * FROM orders";
-        List<Order> orders = jdbcTemplate.query(sql, (rs, rowNum) ->
-                new Order(
-                        rs.getLong("id"),
-                        rs.getString("email"),
-                        rs.getTimestamp("date").toLocalDateTime(),
-                        rs.getString("status"),
-                        null
-                )
-        );
-
-        // Charger les items pour chaque commande
-        for (Order order : orders) {
-            order.setItems(orderItemRepository.findByOrderId(order.getId()));
-        }
-        return orders;
+        return withItems(jdbcTemplate.query(sql, ORDER_ROW_MAPPER));
     }
 
     public Optional<Order> findById(Long id) {
         try {
-            String sql = "SELECT * FROM orders WHERE id = ?";
-            Order order = jdbcTemplate.queryForObject(sql, (rs, rowNum) ->
-                    new Order(
-                            rs.getLong("id"),
-                            rs.getString("email"),
-                            rs.getTimestamp("date").toLocalDateTime(),
-                            rs.getString("status"),
-                            null
-                    ), id);
+            Order order = jdbcTemplate.queryForObject(FIND_BY_ID_SQL, ORDER_ROW_MAPPER, id);
 
             if (order != null) {
                 order.setItems(orderItemRepository.findByOrderId(order.getId()));
@@ -64,47 +75,98 @@ public class OrderRepository {
     }
 
     public List<Order> findByEmail(String email) {
-        String sql = "SELECT * FROM orders WHERE email = ?";
-        List<Order> orders = jdbcTemplate.query(sql, (rs, rowNum) ->
-                new Order(
-                        rs.getLong("id"),
-                        rs.getString("email"),
-                        rs.getTimestamp("date").toLocalDateTime(),
-                        rs.getString("status"),
-                        null
-                ), email);
+        return withItems(jdbcTemplate.query(FIND_BY_EMAIL_SQL, ORDER_ROW_MAPPER, email));
+    }
 
-        for (Order order : orders) {
-            order.setItems(orderItemRepository.findByOrderId(order.getId()));
+    public List<Order> findByStatus(String status) {
+        return withItems(jdbcTemplate.query(FIND_BY_STATUS_SQL, ORDER_ROW_MAPPER, status));
+    }
+
+    /**
+     * Page de commandes triées par (date, id), strictement après le curseur (ou depuis le début si null).
+     */
+    public List<Order> findPage(OrderCursor after, int limit) {
+        if (after == null) {
+            String sql = "SELECT * FROM orders ORDER BY date, id LIMIT ?";
+            return withItems(jdbcTemplate.query(sql, ORDER_ROW_MAPPER, limit));
         }
-        return orders;
+        Timestamp afterDate = Timestamp.valueOf(after.getDate());
+        return withItems(jdbcTemplate.query(FIND_PAGE_AFTER_SQL, ORDER_ROW_MAPPER, afterDate, afterDate, after.getId(), limit));
     }
 
-    public List<Order> findByStatus(String status) {
-        String sql = "SELECT * FROM orders WHERE status = ?";
-        List<Order> orders = jdbcTemplate.query(sql, (rs, rowNum) ->
-                new Order(
-                        rs.getLong("id"),
-                        rs.getString("email"),
-                        rs.getTimestamp("date").toLocalDateTime(),
-                        rs.getString("status"),
-                        null
-                ), status);
+    /**
+     * Parcourt toutes les commandes avec leurs items via un seul LEFT JOIN lu en flux :
+     * chaque commande est transmise au consumer dès que sa dernière ligne est lue.
+     */
+    public void streamAll(Consumer<Order> consumer) {
+        String sql = "SELECT o.id, o.email, o.date, o.status, o.version, "
+                + "i.id AS item_id, i.product_id, i.quantity "
+                + "FROM orders o LEFT JOIN order_item i ON i.order_id = o.id "
+                + "ORDER BY o.date, o.id, i.id";
+
+        PreparedStatementCreator streaming = connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Connector/J ne lit ligne à ligne qu'avec Integer.MIN_VALUE
+            boolean mysql = "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+            ps.setFetchSize(mysql ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+            return ps;
+        };
+
+        // Chaque ligne devient une commande portant au plus un item, fusionnée avec la précédente si même id
+        try (Stream<Order> rows = jdbcTemplate.queryForStream(streaming, (rs, rowNum) -> {
+            Order order = ORDER_ROW_MAPPER.mapRow(rs, rowNum);
+            List<OrderItem> items = new ArrayList<>();
+            long itemId = rs.getLong("item_id");
+            if (!rs.wasNull()) {
+                items.add(new OrderItem(itemId, order.getId(), rs.getLong("product_id"), rs.getInt("quantity")));
+            }
+            order.setItems(items);
+            return order;
+        })) {
+            Order current = null;
+            for (Iterator<Order> it = rows.iterator(); it.hasNext(); ) {
+                Order row = it.next();
+                if (current != null && current.getId().equals(row.getId())) {
+                    current.getItems().addAll(row.getItems());
+                    continue;
+                }
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                current = row;
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+        }
+    }
 
+    // Charge les items de toutes les commandes en lot plutôt qu'une requête par commande
+    private List<Order> withItems(List<Order> orders) {
+        List<Long> orderIds = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            orderIds.add(order.getId());
+        }
+        Map<Long, List<OrderItem>> itemsByOrderId = orderItemRepository.findByOrderIds(orderIds);
         for (Order order : orders) {
-            order.setItems(orderItemRepository.findByOrderId(order.getId()));
+            order.setItems(itemsByOrderId.getOrDefault(order.getId(), new ArrayList<>()));
         }
         return orders;
     }
 
+    // Lecture verrouillante du statut : les transitions concurrentes d'une même commande sont sérialisées
+    public String lockStatus(Long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ? FOR UPDATE", String.class, id);
+    }
+
     public Order save(Order order) {
         if (order.getId() == null) {
             // Insert
-            String sql = "INSERT INTO orders (email, date, status) VALUES (?, ?, ?)";
             KeyHolder keyHolder = new GeneratedKeyHolder();
 
             jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                // Seule la colonne id est demandée : "date" a aussi une valeur par défaut générée
+                PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
                 ps.setString(1, order.getEmail());
                 ps.setTimestamp(2, Timestamp.valueOf(order.getDate()));
                 ps.setString(3, order.getStatus());
@@ -112,24 +174,71 @@ public class OrderRepository {
             }, keyHolder);
 
             order.setId(keyHolder.getKey().longValue());
+            order.setVersion(0L);
+
+            // Les items ne sont insérés qu'à la création, en un seul batch
+            if (order.getItems() != null) {
+                for (OrderItem item : order.getItems()) {
+                    item.setOrderId(order.getId());
+                }
+                orderItemRepository.saveAll(order.getItems());
+            }
         } else {
             // Update
-            String sql = "UPDATE orders SET email = ?, date = ?, status = ? WHERE id = ?";
+            String sql = "UPDATE orders SET email = ?, date = ?, status = ?, version = version + 1 WHERE id = ?";
             jdbcTemplate.update(sql,
                     order.getEmail(),
                     Timestamp.valueOf(order.getDate()),
                     order.getStatus(),
                     order.getId()
             );
-        }
-
-        if (order.getItems() != null) {
-            for (OrderItem item : order.getItems()) {
-                item.setOrderId(order.getId());
-                orderItemRepository.save(item);
+            if (order.getVersion() != null) {
+                order.setVersion(order.getVersion() + 1);
             }
         }
 
         return order;
     }
+
+    // Insertion de nouvelles commandes en deux batchs : les commandes, puis tous leurs items
+    public List<Order> saveAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Order order = orders.get(i);
+                        ps.setString(1, order.getEmail());
+                        ps.setTimestamp(2, Timestamp.valueOf(order.getDate()));
+                        ps.setString(3, order.getStatus());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orders.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < orders.size() && i < keys.size(); i++) {
+            Order order = orders.get(i);
+            order.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            order.setVersion(0L);
+            if (order.getItems() != null) {
+                for (OrderItem item : order.getItems()) {
+                    item.setOrderId(order.getId());
+                    items.add(item);
+                }
+            }
+        }
+        orderItemRepository.saveAll(items);
+        return orders;
+    }
 }
@@ -0,0 +1,211 @@
+package com.greta.ecommerce.repository;
+
+import com.greta.ecommerce.dto.OrderStats;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Agrégats des commandes par jour / statut et par produit / statut (voir V6__order_stats.sql).
+ * Les lectures ne parcourent que les seaux, jamais les commandes.
+ */
+@Repository
+public class OrderStatsRepository {
+
+    public static final int SLOTS = 8;
+
+    // Seau d'agrégat : jour (LocalDate) ou produit (Long), statut et slot
+    public record Bucket(Object key, String status, int slot) {
+    }
+
+    // Ordre fixe de mise à jour des lignes : deux transactions ne s'attendent jamais mutuellement
+    private static final Comparator<Bucket> LOCK_ORDER = Comparator.comparing(Bucket::status)
+            .thenComparing(bucket -> bucket.key().toString())
+            .thenComparingInt(Bucket::slot);
+
+    // Alias de ligne (MySQL 8.0.20+, où VALUES(col) est déprécié) ; H2 ne connaît que VALUES(col)
+    private static final String DAILY_UPSERT_SQL = upsertSql("order_stats_daily", "order_day", true);
+    private static final String PRODUCT_UPSERT_SQL = upsertSql("order_stats_product", "product_id", true);
+    private static final String H2_DAILY_UPSERT_SQL = upsertSql("order_stats_daily", "order_day", false);
+    private static final String H2_PRODUCT_UPSERT_SQL = upsertSql("order_stats_product", "product_id", false);
+
+    private static final String DAILY_CHUNK_SQL =
+            "SELECT CAST(o.date AS DATE) AS bucket, o.status, o.id % " + SLOTS + " AS slot, "
+                    + "COUNT(DISTINCT o.id) AS order_count, SUM(oi.quantity) AS item_quantity "
+                    + "FROM orders o JOIN order_item oi ON oi.order_id = o.id "
+                    + "WHERE o.id BETWEEN ? AND ? AND o.id % " + SLOTS + " = ? "
+                    + "GROUP BY CAST(o.date AS DATE), o.status, o.id % " + SLOTS;
+
+    private static final String PRODUCT_CHUNK_SQL =
+            "SELECT oi.product_id AS bucket, o.status, o.id % " + SLOTS + " AS slot, "
+                    + "COUNT(DISTINCT o.id) AS order_count, SUM(oi.quantity) AS item_quantity "
+                    + "FROM orders o JOIN order_item oi ON oi.order_id = o.id "
+                    + "WHERE o.id BETWEEN ? AND ? AND o.id % " + SLOTS + " = ? "
+                    + "GROUP BY oi.product_id, o.status, o.id % " + SLOTS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean h2; // base détectée au premier usage
+
+    public OrderStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private static String upsertSql(String table, String key, boolean rowAlias) {
+        String inserted = rowAlias ? "new.%s" : "VALUES(%s)";
+        return "INSERT INTO " + table + " (" + key + ", status, slot, order_count, item_quantity) VALUES (?, ?, ?, ?, ?) "
+                + (rowAlias ? "AS new " : "")
+                + "ON DUPLICATE KEY UPDATE order_count = order_count + " + inserted.formatted("order_count") + ", "
+                + "item_quantity = item_quantity + " + inserted.formatted("item_quantity");
+    }
+
+    /**
+     * Ajoute les deltas {commandes, quantité} aux seaux, en créant ceux qui n'existent pas encore.
+     * Un batch par table, lignes triées dans l'ordre de verrouillage.
+     */
+    public void applyDeltas(Map<Bucket, long[]> daily, Map<Bucket, long[]> byProduct) {
+        boolean h2 = isH2();
+        upsert(h2 ? H2_DAILY_UPSERT_SQL : DAILY_UPSERT_SQL, daily, true);
+        upsert(h2 ? H2_PRODUCT_UPSERT_SQL : PRODUCT_UPSERT_SQL, byProduct, false);
+    }
+
+    private void upsert(String sql, Map<Bucket, long[]> deltas, boolean daily) {
+        Map<Bucket, long[]> sorted = new TreeMap<>(LOCK_ORDER);
+        deltas.forEach((bucket, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0) {
+                sorted.put(bucket, delta);
+            }
+        });
+        if (sorted.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(sorted.size());
+        sorted.forEach((bucket, delta) -> rows.add(row(bucket, delta, daily)));
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+
+    private static Object[] row(Bucket bucket, long[] values, boolean daily) {
+        Object key = daily ? Date.valueOf((LocalDate) bucket.key()) : bucket.key();
+        return new Object[]{key, bucket.status(), bucket.slot(), values[0], values[1]};
+    }
+
+    /**
+     * Isolation donnant à une transaction une vue unique de toutes les tables : REPEATABLE READ sous InnoDB.
+     * H2 ne fige la vue que table par table à ce niveau ; son SERIALIZABLE en est l'équivalent.
+     */
+    public int snapshotIsolationLevel() {
+        return isH2() ? TransactionDefinition.ISOLATION_SERIALIZABLE : TransactionDefinition.ISOLATION_REPEATABLE_READ;
+    }
+
+    private boolean isH2() {
+        Boolean detected = h2;
+        if (detected == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            detected = "H2".equalsIgnoreCase(product);
+            h2 = detected;
+        }
+        return detected;
+    }
+
+    // [min, max] des ids de commande, null si la table est vide
+    public long[] findOrderIdRange() {
+        return jdbcTemplate.query("SELECT MIN(id), MAX(id) FROM orders", rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        });
+    }
+
+    // Agrégats recalculés depuis orders / order_item pour les commandes d'ids [fromId, toId] du slot donné
+    public Map<Bucket, long[]> aggregateDaily(long fromId, long toId, int slot) {
+        return aggregate(DAILY_CHUNK_SQL, true, fromId, toId, slot);
+    }
+
+    public Map<Bucket, long[]> aggregateByProduct(long fromId, long toId, int slot) {
+        return aggregate(PRODUCT_CHUNK_SQL, false, fromId, toId, slot);
+    }
+
+    // Valeurs actuelles des seaux d'un slot
+    public Map<Bucket, long[]> findDailySlot(int slot) {
+        return aggregate("SELECT order_day AS bucket, status, slot, order_count, item_quantity "
+                + "FROM order_stats_daily WHERE slot = ?", true, slot);
+    }
+
+    public Map<Bucket, long[]> findProductSlot(int slot) {
+        return aggregate("SELECT product_id AS bucket, status, slot, order_count, item_quantity "
+                + "FROM order_stats_product WHERE slot = ?", false, slot);
+    }
+
+    private Map<Bucket, long[]> aggregate(String sql, boolean daily, Object... params) {
+        Map<Bucket, long[]> buckets = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            Object key = daily ? rs.getDate("bucket").toLocalDate() : rs.getLong("bucket");
+            buckets.put(new Bucket(key, rs.getString("status"), rs.getInt("slot")),
+                    new long[]{rs.getLong("order_count"), rs.getLong("item_quantity")});
+        }, params);
+        return buckets;
+    }
+
+    public List<OrderStats> findByStatus(LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT status, SUM(order_count) AS orders, SUM(item_quantity) AS quantity FROM order_stats_daily"
+                + dayRange(from, to, params)
+                + " GROUP BY status HAVING SUM(order_count) > 0 ORDER BY status";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new OrderStats(
+                null, null, rs.getString("status"), rs.getLong("orders"), rs.getLong("quantity")), params.toArray());
+    }
+
+    public List<OrderStats> findDaily(LocalDate from, LocalDate to, String status) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT order_day, status, SUM(order_count) AS orders, SUM(item_quantity) AS quantity FROM order_stats_daily")
+                .append(dayRange(from, to, params));
+        if (status != null) {
+            sql.append(params.isEmpty() ? " WHERE" : " AND").append(" status = ?");
+            params.add(status);
+        }
+        sql.append(" GROUP BY order_day, status HAVING SUM(order_count) > 0 ORDER BY order_day, status");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new OrderStats(
+                rs.getDate("order_day").toLocalDate(), null, rs.getString("status"),
+                rs.getLong("orders"), rs.getLong("quantity")), params.toArray());
+    }
+
+    // Produits les plus commandés (en quantité), tous statuts confondus ou pour un statut
+    public List<OrderStats> findTopProducts(String status, int limit) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT product_id, SUM(order_count) AS orders, SUM(item_quantity) AS quantity FROM order_stats_product");
+        if (status != null) {
+            sql.append(" WHERE status = ?");
+            params.add(status);
+        }
+        sql.append(" GROUP BY product_id HAVING SUM(order_count) > 0 ORDER BY quantity DESC, product_id LIMIT ?");
+        params.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new OrderStats(
+                null, rs.getLong("product_id"), status,
+                rs.getLong("orders"), rs.getLong("quantity")), params.toArray());
+    }
+
+    private static String dayRange(LocalDate from, LocalDate to, List<Object> params) {
+        StringBuilder where = new StringBuilder();
+        if (from != null) {
+            where.append(" WHERE order_day >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            where.append(from != null ? " AND" : " WHERE").append(" order_day <= ?");
+            params.add(Date.valueOf(to));
+        }
+        return where.toString();
+    }
+}
@@ -1,55 +1,182 @@
 package com.greta.ecommerce.repository;
 
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.cache.SingleFlight;
+import com.greta.ecommerce.dto.ProductQuery;
+import com.greta.ecommerce.dto.ProductSummary;
+import com.greta.ecommerce.dto.StockAdjustment;
 import com.greta.ecommerce.entity.Product;
+import com.greta.ecommerce.event.ProductChangedEvent;
+import com.greta.ecommerce.event.StockChangedEvent;
+import com.greta.ecommerce.exception.InvalidQueryException;
+import com.greta.ecommerce.exception.VersionConflictException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.PreparedStatement;
-import java.sql.Statement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.TreeMap;
 
 @Repository
 public class ProductRepository {
+    static final String FIND_BY_ID_SQL = "SELECT * FROM product WHERE id = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO product (name, description, price, stock, image_url) VALUES (?, ?, ?, ?, ?)";
+
+    // Champ JSON -> colonne, pour fields= et sort=
+    private static final Map<String, String> SUMMARY_COLUMNS = Map.of(
+            "id", "id", "name", "name", "description", "description", "price", "price",
+            "stock", "stock", "imageUrl", "image_url", "version", "version");
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id", "name", "name", "price", "price", "stock", "stock");
+    // Colonnes d'une grille catalogue : pas de description (TEXT)
+    private static final List<String> DEFAULT_SUMMARY_FIELDS = List.of("id", "name", "price", "stock", "imageUrl");
+
+    private static final RowMapper<Product> PRODUCT_ROW_MAPPER = (rs, rowNum) -> {
+        Product product = new Product(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getDouble("price"),
+                rs.getInt("stock"),
+                rs.getString("image_url")
+        );
+        product.setVersion(rs.getLong("version"));
+        return product;
+    };
+
     private final JdbcTemplate jdbcTemplate;
+    private final ProductCache productCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight<String, List<ProductSummary>> summaryLoads = new SingleFlight<>();
 
-    public ProductRepository(JdbcTemplate jdbcTemplate) {
+    public ProductRepository(JdbcTemplate jdbcTemplate, ProductCache productCache,
+                             ApplicationEventPublisher eventPublisher) {
         this.jdbcTemplate = jdbcTemplate;
+        this.productCache = productCache;
+        this.eventPublisher = eventPublisher;
     }
 
+    // Lecture via le cache : la base n'est interrogée qu'en cas d'absence ou d'expiration
     public List<Product> findAll() {
+        return productCache.getAll(this::loadAll);
+    }
+
+    public Optional<Product> findById(Long id) {
+        return productCache.getById(id, this::loadById);
+    }
+
+    /**
+     * Liste filtrée, triée et paginée qui ne lit que les colonnes demandées.
+     * Champs et tris sont validés par liste blanche avant d'entrer dans le SQL.
+     * En lecture seule, donc servie par un réplica s'il y en a ; findAll / findById restent sur le primaire
+     * pour ne pas remettre en cache une ligne que le réplica n'a pas encore rattrapée.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductSummary> findSummaries(ProductQuery query) {
+        List<String> fields = query.getFields() == null || query.getFields().isBlank()
+                ? DEFAULT_SUMMARY_FIELDS
+                : List.of(query.getFields().split("\\s*,\\s*"));
+        StringJoiner columns = new StringJoiner(", ");
+        for (String field : fields) {
+            String column = SUMMARY_COLUMNS.get(field);
+            if (column == null) {
+                throw new InvalidQueryException("champ inconnu '" + field + "', attendus : " + SUMMARY_COLUMNS.keySet());
+            }
+            columns.add(column);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM product WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (query.getMinPrice() != null) {
+            sql.append(" AND price >= ?");
+            params.add(query.getMinPrice());
+        }
+        if (query.getMaxPrice() != null) {
+            sql.append(" AND price <= ?");
+            params.add(query.getMaxPrice());
+        }
+        if (Boolean.TRUE.equals(query.getInStock())) {
+            sql.append(" AND stock > 0");
+        }
+
+        String sort = query.getSort() == null || query.getSort().isBlank() ? "id" : query.getSort();
+        boolean descending = sort.startsWith("-");
+        String sortColumn = SORT_COLUMNS.get(descending ? sort.substring(1) : sort);
+        if (sortColumn == null) {
+            throw new InvalidQueryException("tri inconnu '" + sort + "', attendus : " + SORT_COLUMNS.keySet());
+        }
+        sql.append(" ORDER BY ").append(sortColumn).append(descending ? " DESC" : " ASC");
+        if (!sortColumn.equals("id")) {
+            sql.append(", id");
+        }
+
+        int size = query.getSize() == null ? ProductQuery.DEFAULT_SIZE
+                : Math.max(1, Math.min(query.getSize(), ProductQuery.MAX_SIZE));
+        int page = query.getPage() == null ? 0 : Math.max(0, query.getPage());
+        sql.append(" LIMIT ? OFFSET ?");
+        params.add(size);
+        params.add((long) page * size);
+
+        // Requêtes identiques simultanées (même page d'une liste très consultée) : une seule en base.
+        // Dans une transaction d'écriture, on lit soi-même pour voir ses propres écritures.
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return querySummaries(sql.toString(), fields, params);
+        }
+        return summaryLoads.execute(sql + " " + params, () -> querySummaries(sql.toString(), fields, params));
+    }
+
+    private List<ProductSummary> querySummaries(String sql, List<String> fields, List<Object> params) {
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            ProductSummary summary = new ProductSummary();
+            for (String field : fields) {
+                switch (field) {
+                    case "id" -> summary.setId(rs.getLong("id"));
+                    case "name" -> summary.setName(rs.getString("name"));
+                    case "description" -> summary.setDescription(rs.getString("description"));
+                    case "price" -> summary.setPrice(rs.getDouble("price"));
+                    case "stock" -> summary.setStock(rs.getInt("stock"));
+                    case "imageUrl" -> summary.setImageUrl(rs.getString("image_url"));
+                    case "version" -> summary.setVersion(rs.getLong("version"));
+                    default -> throw new IllegalStateException(field);
+                }
+            }
+            return summary;
+        }, params.toArray());
+    }
+
+    private List<Product> loadAll() {
         return jdbcTemplate.query(
                 "SELECT * FROM product",
-                (rs, rowNum) ->
-                        new Product(
-                                rs.getLong("id"),
-                                rs.getString("name"),
-                                rs.getString("description"),
-                                rs.getDouble("price"),
-                                rs.getInt("stock"),
-                                rs.getString("image_url")
-                        )
+                PRODUCT_ROW_MAPPER
         );
     }
 
-    public Optional<Product> findById(Long id) {
+    private Optional<Product> loadById(Long id) {
         try {
             Product product = jdbcTemplate.queryForObject(
-                    "SELECT * FROM product WHERE id = ?",
-                    (rs, rowNum) ->
-                            new Product(
-                                    rs.getLong("id"),
-                                    rs.getString("name"),
-                                    rs.getString("description"),
-                                    rs.getDouble("price"),
-                                    rs.getInt("stock"),
-                                    rs.getString("image_url")
-                            ),
+                    FIND_BY_ID_SQL,
+                    PRODUCT_ROW_MAPPER,
                     id
             );
             return Optional.ofNullable(product);
@@ -62,49 +189,288 @@ public class ProductRepository {
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(
-                    "INSERT INTO product (name, description, price, stock, image_url) VALUES (?, ?, ?, ?, ?)",
-                    Statement.RETURN_GENERATED_KEYS
-            );
-            ps.setString(1, product.getName());
-            ps.setString(2, product.getDescription());
-            ps.setDouble(3, product.getPrice());
-            ps.setInt(4, product.getStock());
-            ps.setString(5, product.getImageUrl());
+            // Seule la colonne id est demandée : "version" a aussi une valeur par défaut
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
+            setInsertValues(ps, product);
             return ps;
         }, keyHolder);
 
         Long id = Objects.requireNonNull(keyHolder.getKey()).longValue();
         product.setId(id);
+        product.setVersion(0L);
+        productCache.evict(id);
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.CREATED, id, product));
         return product;
     }
 
-    public Product update(Product product) {
-        jdbcTemplate.update(
-                "UPDATE product SET name = ?, description = ?, price = ?, stock = ?, image_url = ? WHERE id = ?",
+    /**
+     * Insère les produits en un seul batch JDBC et renseigne leurs ids générés.
+     */
+    public List<Product> saveAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return products;
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setInsertValues(ps, products.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return products.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < products.size() && i < keys.size(); i++) {
+            Product product = products.get(i);
+            product.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            product.setVersion(0L);
+        }
+        productCache.evictAll();
+        for (Product product : products) {
+            eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.CREATED, product.getId(), product));
+        }
+        return products;
+    }
+
+    private static void setInsertValues(PreparedStatement ps, Product product) throws SQLException {
+        ps.setString(1, product.getName());
+        ps.setString(2, product.getDescription());
+        ps.setDouble(3, product.getPrice());
+        ps.setInt(4, product.getStock());
+        ps.setString(5, product.getImageUrl());
+    }
+
+    /**
+     * @return false si le produit n'existe pas (aucune ligne modifiée)
+     */
+    public boolean update(Product product) {
+        return update(product, null);
+    }
+
+    /**
+     * Mise à jour par compare-and-set sur la version : un seul UPDATE, aucun verrou tenu entre
+     * la lecture du client et son écriture. En cas de succès, product porte sa nouvelle version.
+     * Le stock n'est pas écrit : il ne change que par variation (réservations, adjustStock, ajustements).
+     *
+     * @param expectedVersion version lue par le client, null pour une mise à jour sans condition
+     * @return false si le produit n'existe pas
+     * @throws VersionConflictException si le produit a été modifié depuis expectedVersion
+     */
+    public boolean update(Product product, Long expectedVersion) {
+        String sql = "UPDATE product SET name = ?, description = ?, price = ?, image_url = ?, version = version + 1 WHERE id = ?";
+        // Arrays.asList : description et image_url peuvent être null
+        List<Object> params = new ArrayList<>(Arrays.asList(
                 product.getName(),
                 product.getDescription(),
                 product.getPrice(),
-                product.getStock(),
                 product.getImageUrl(),
-                product.getId()
-        );
-        return product;
+                product.getId()));
+        if (expectedVersion != null) {
+            sql += " AND version = ?";
+            params.add(expectedVersion);
+        }
+        int updatedRows = jdbcTemplate.update(sql, params.toArray());
+        if (updatedRows == 0) {
+            if (expectedVersion == null) {
+                return false;
+            }
+            Long currentVersion = findVersion(product.getId()).orElse(null);
+            if (currentVersion == null) {
+                return false;
+            }
+            throw new VersionConflictException(product.getId(), currentVersion);
+        }
+        if (expectedVersion != null) {
+            product.setVersion(expectedVersion + 1);
+        }
+        productCache.evict(product.getId());
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, product.getId(), product));
+        return true;
     }
 
-    public void delete(Long id) {
-        jdbcTemplate.update("DELETE FROM product WHERE id = ?", id);
+    // Version lue directement en base, sans passer par le cache
+    public Optional<Long> findVersion(Long id) {
+        return jdbcTemplate.queryForList("SELECT version FROM product WHERE id = ?", Long.class, id)
+                .stream().findFirst();
     }
 
-    public boolean updateStock(Long id, int quantity) {
-        try {
-            int updatedRows = jdbcTemplate.update(
-                    "UPDATE product SET stock = stock - ? WHERE id = ? AND stock >= ?",
-                    quantity, id, quantity
-            );
-            return updatedRows > 0;
-        } catch (DataAccessException e) {
+    /**
+     * @return false si le produit n'existe pas (aucune ligne supprimée)
+     */
+    public boolean delete(Long id) {
+        int deletedRows = jdbcTemplate.update("DELETE FROM product WHERE id = ?", id);
+        if (deletedRows == 0) {
             return false;
         }
+        productCache.evict(id);
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.DELETED, id, null));
+        return true;
+    }
+
+    /**
+     * Variation relative du stock d'un produit, refusée si elle le rendait négatif.
+     *
+     * @return false si le produit n'existe pas ou si le stock est insuffisant
+     */
+    public boolean adjustStock(Long id, int delta) {
+        return adjustStock(List.of(new StockAdjustment(id, delta)))[0];
+    }
+
+    /**
+     * Réserve le stock de plusieurs produits en un seul batch de UPDATE conditionnels.
+     * Les produits sont traités par id croissant pour que deux commandes concurrentes
+     * verrouillent les lignes dans le même ordre.
+     *
+     * @return les ids des produits inexistants ou dont le stock est insuffisant (vide si tout est réservé)
+     */
+    public List<Long> reserveStock(Map<Long, Integer> quantities) {
+        return batchAdjustStock(
+                "UPDATE product SET stock = stock - ?, version = version + 1 WHERE id = ? AND stock >= ?",
+                quantities, true);
+    }
+
+    /**
+     * Remet en stock les quantités données, en un seul batch.
+     *
+     * @return les ids des produits qui n'existent plus
+     */
+    public List<Long> releaseStock(Map<Long, Integer> quantities) {
+        return batchAdjustStock(
+                "UPDATE product SET stock = stock + ?, version = version + 1 WHERE id = ?",
+                quantities, false);
+    }
+
+    /**
+     * Applique des corrections de stock relatives en un seul batch ; une correction qui rendrait
+     * le stock négatif, ou qui vise un produit inexistant, n'est pas appliquée.
+     *
+     * @return pour chaque correction, dans l'ordre, true si elle a été appliquée
+     */
+    public boolean[] adjustStock(List<StockAdjustment> adjustments) {
+        List<Long> ids = new ArrayList<>(adjustments.size());
+        for (StockAdjustment adjustment : adjustments) {
+            ids.add(adjustment.getProductId());
+        }
+        productCache.evict(ids);
+
+        int[] updatedRows = jdbcTemplate.batchUpdate(
+                "UPDATE product SET stock = stock + ?, version = version + 1 WHERE id = ? AND stock + ? >= 0",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        StockAdjustment adjustment = adjustments.get(i);
+                        ps.setInt(1, adjustment.getDelta());
+                        ps.setLong(2, adjustment.getProductId());
+                        ps.setInt(3, adjustment.getDelta());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return adjustments.size();
+                    }
+                });
+
+        boolean[] applied = new boolean[updatedRows.length];
+        for (int i = 0; i < updatedRows.length; i++) {
+            applied[i] = updatedRows[i] == 1;
+            if (applied[i]) {
+                eventPublisher.publishEvent(new ProductChangedEvent(
+                        ProductChangedEvent.Type.STOCK_CHANGED, adjustments.get(i).getProductId(), null));
+            }
+        }
+        return applied;
+    }
+
+    // Stock lu directement en base, sans passer par le cache (chargement du StockLedger)
+    public Optional<Integer> findStock(Long id) {
+        List<Integer> stock = jdbcTemplate.queryForList("SELECT stock FROM product WHERE id = ?", Integer.class, id);
+        return stock.stream().findFirst();
+    }
+
+    /**
+     * Stocks de plusieurs produits lus en base, sans le cache, par lots de
+     * {@value OrderItemRepository#IN_CLAUSE_CHUNK_SIZE} identifiants. Les produits inexistants sont absents du résultat.
+     */
+    public Map<Long, Integer> findStocks(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        Map<Long, Integer> stocks = new HashMap<>();
+        for (int from = 0; from < idList.size(); from += OrderItemRepository.IN_CLAUSE_CHUNK_SIZE) {
+            List<Long> chunk = idList.subList(from, Math.min(from + OrderItemRepository.IN_CLAUSE_CHUNK_SIZE, idList.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("SELECT id, stock FROM product WHERE id IN (" + placeholders + ")",
+                    rs -> {
+                        stocks.put(rs.getLong("id"), rs.getInt("stock"));
+                    }, chunk.toArray());
+        }
+        return stocks;
+    }
+
+    /**
+     * Report en base des réservations du StockLedger, en un seul batch. Le stock est borné à 0 :
+     * une baisse manuelle du stock pendant que des réservations étaient en attente ne doit pas
+     * bloquer la réconciliation sur la contrainte CHECK.
+     */
+    public void applyStockDeltas(Map<Long, Long> deltas) {
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(new TreeMap<>(deltas).entrySet());
+        productCache.evict(deltas.keySet());
+        jdbcTemplate.batchUpdate(
+                "UPDATE product SET stock = GREATEST(stock + ?, 0), version = version + 1 WHERE id = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Map.Entry<Long, Long> entry = entries.get(i);
+                        ps.setLong(1, entry.getValue());
+                        ps.setLong(2, entry.getKey());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return entries.size();
+                    }
+                });
+        eventPublisher.publishEvent(new StockChangedEvent(List.copyOf(deltas.keySet())));
+    }
+
+    private List<Long> batchAdjustStock(String sql, Map<Long, Integer> quantities, boolean checkStock) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        productCache.evict(quantities.keySet());
+        int[] updatedRows = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> entry = entries.get(i);
+                ps.setInt(1, entry.getValue());
+                ps.setLong(2, entry.getKey());
+                if (checkStock) {
+                    ps.setInt(3, entry.getValue());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+
+        List<Long> rejected = new ArrayList<>();
+        List<Long> changed = new ArrayList<>(entries.size());
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] != 1) {
+                rejected.add(entries.get(i).getKey());
+            } else {
+                changed.add(entries.get(i).getKey());
+            }
+        }
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(changed));
+        }
+        return rejected;
     }
 }
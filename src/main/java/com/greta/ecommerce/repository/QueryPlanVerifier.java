@@ -0,0 +1,86 @@
+package com.greta.ecommerce.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vérifie au démarrage, via EXPLAIN, que chaque requête de recherche des repositories dispose d'un index.
+ * Une requête sans index utilisable est signalée (ou bloque le démarrage si ecommerce.db.fail-on-full-scan=true) ;
+ * un index disponible mais écarté par l'optimiseur, fréquent sur une petite table, est seulement journalisé.
+ */
+@Component
+public class QueryPlanVerifier {
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanVerifier.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final boolean failOnFullScan;
+
+    public QueryPlanVerifier(JdbcTemplate jdbcTemplate,
+                             @Value("${ecommerce.db.verify-query-plans:true}") boolean enabled,
+                             @Value("${ecommerce.db.fail-on-full-scan:false}") boolean failOnFullScan) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.failOnFullScan = failOnFullScan;
+    }
+
+    // Requête -> paramètres d'exemple pour l'EXPLAIN
+    static Map<String, Object[]> indexedQueries() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<String, Object[]> queries = new LinkedHashMap<>();
+        queries.put(ProductRepository.FIND_BY_ID_SQL, new Object[]{1L});
+        queries.put(OrderRepository.FIND_BY_ID_SQL, new Object[]{1L});
+        queries.put(OrderRepository.FIND_BY_EMAIL_SQL, new Object[]{"client@example.com"});
+        queries.put(OrderRepository.FIND_BY_STATUS_SQL, new Object[]{"PENDING"});
+        queries.put(OrderRepository.FIND_PAGE_AFTER_SQL, new Object[]{now, now, 1L, 50});
+        queries.put(OrderItemRepository.FIND_BY_ORDER_ID_SQL, new Object[]{1L});
+        queries.put(OrderOutboxRepository.FIND_UNPUBLISHED_SQL, new Object[]{500});
+        queries.put(OrderOutboxRepository.FIND_PUBLISHED_AFTER_SQL, new Object[]{0L, 500});
+        return queries;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verify() {
+        if (!enabled) {
+            return;
+        }
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(product)) {
+            log.debug("Vérification des plans ignorée pour {}", product);
+            return;
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, Object[]> query : indexedQueries().entrySet()) {
+            for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + query.getKey(), query.getValue())) {
+                if (row.get("possible_keys") == null) {
+                    missing.add(query.getKey() + " (table " + row.get("table") + ", type " + row.get("type") + ")");
+                } else if (row.get("key") == null) {
+                    log.info("Index disponible mais non choisi par l'optimiseur pour [{}] : {}", query.getKey(), row);
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            log.info("Plans vérifiés : les {} requêtes de recherche utilisent un index", indexedQueries().size());
+        } else if (failOnFullScan) {
+            throw new IllegalStateException("Requêtes sans index utilisable : " + missing);
+        } else {
+            missing.forEach(query -> log.warn("Requête sans index utilisable : {}", query));
+        }
+    }
+}
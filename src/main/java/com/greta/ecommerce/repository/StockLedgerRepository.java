@@ -0,0 +1,22 @@
+package com.greta.ecommerce.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class StockLedgerRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockLedgerRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long findCheckpoint() {
+        return jdbcTemplate.queryForObject("SELECT last_seq FROM stock_ledger_checkpoint WHERE id = 1", Long.class);
+    }
+
+    public void saveCheckpoint(long lastSeq) {
+        jdbcTemplate.update("UPDATE stock_ledger_checkpoint SET last_seq = ? WHERE id = 1", lastSeq);
+    }
+}
@@ -0,0 +1,175 @@
+package com.greta.ecommerce.search;
+
+import com.greta.ecommerce.entity.Product;
+import com.greta.ecommerce.event.ProductChangedEvent;
+import com.greta.ecommerce.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Index inversé en mémoire sur le nom et la description des produits.
+ * Construit au démarrage puis tenu à jour par les ProductChangedEvent une fois la transaction
+ * validée. L'index ne garde que les termes de chaque produit : les résultats sont relus par
+ * ProductRepository.findById (servi par le cache), si bien que stock, prix et version sont
+ * toujours ceux du moment. Les termes sont normalisés sans accents ni casse
+ * ("Écouteurs" et "ecouteurs" sont équivalents) et chaque mot de la requête
+ * peut être un préfixe ("ecou" trouve "écouteurs").
+ */
+@Component
+public class ProductSearchIndex {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "au", "aux", "avec", "d", "de", "des", "du", "en", "et", "l", "la", "le", "les",
+            "ou", "par", "pour", "sans", "sur", "un", "une");
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_PENALTY = 0.5f;
+
+    private final ProductRepository productRepository;
+
+    // terme -> (id produit -> poids du terme dans ce produit)
+    private final ConcurrentSkipListMap<String, Map<Long, Float>> postings = new ConcurrentSkipListMap<>();
+    // id produit -> termes indexés, pour la désindexation
+    private final Map<Long, Set<String>> documentTerms = new ConcurrentHashMap<>();
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            postings.clear();
+            documentTerms.clear();
+            productRepository.findAll().forEach(this::index);
+        }
+    }
+
+    // Après commit seulement : une écriture annulée ne laisse pas de document fantôme
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case DELETED -> remove(event.getProductId());
+            case STOCK_CHANGED -> { } // ni le nom ni la description ne changent, le stock est relu à la recherche
+            default -> index(event.getProduct()); // seuls le nom et la description du corps sont retenus
+        }
+    }
+
+    public synchronized void index(Product product) {
+        remove(product.getId());
+
+        Map<String, Float> weights = new HashMap<>();
+        for (String term : tokenize(product.getName())) {
+            weights.merge(term, NAME_WEIGHT, Float::sum);
+        }
+        for (String term : tokenize(product.getDescription())) {
+            weights.merge(term, DESCRIPTION_WEIGHT, Float::sum);
+        }
+
+        documentTerms.put(product.getId(), weights.keySet());
+        weights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, k -> new ConcurrentHashMap<>()).put(product.getId(), weight));
+    }
+
+    public synchronized void remove(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            postings.computeIfPresent(term, (k, ids) -> {
+                ids.remove(productId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Produits contenant tous les mots de la requête (en préfixe), du plus pertinent au moins pertinent.
+     * Les produits supprimés entre-temps sont ignorés.
+     */
+    public List<Product> search(String query, int limit) {
+        List<Product> results = new ArrayList<>();
+        for (Long id : rank(query)) {
+            if (results.size() == limit) {
+                break;
+            }
+            productRepository.findById(id).ifPresent(results::add);
+        }
+        return results;
+    }
+
+    // Ids classés par score décroissant. Le score cumule, pour chaque mot, le poids du meilleur
+    // terme correspondant pondéré par sa rareté.
+    List<Long> rank(String query) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        int documentCount = Math.max(1, documentTerms.size());
+        Map<Long, Float> scores = null;
+        for (String queryTerm : queryTerms) {
+            Map<Long, Float> termScores = new HashMap<>();
+            NavigableMap<String, Map<Long, Float>> matches =
+                    postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Map<Long, Float>> match : matches.entrySet()) {
+                Map<Long, Float> ids = match.getValue();
+                float idf = (float) Math.log(1 + documentCount / (double) ids.size());
+                float factor = match.getKey().equals(queryTerm) ? idf : idf * PREFIX_PENALTY;
+                ids.forEach((id, weight) -> termScores.merge(id, weight * factor, Math::max));
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                // Tous les mots doivent correspondre
+                scores.keySet().retainAll(termScores.keySet());
+                for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                    entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Map.Entry<Long, Float>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Float>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        return ranked.stream().map(Map.Entry::getKey).toList();
+    }
+
+    public int size() {
+        return documentTerms.size();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> terms = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+}
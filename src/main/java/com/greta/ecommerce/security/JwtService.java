@@ -0,0 +1,152 @@
+package com.greta.ecommerce.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Émission et vérification des jetons JWT (HS256) de l'API d'administration.
+ * <p>
+ * Un jeton déjà vérifié est gardé dans un cache borné avec son Authentication : les requêtes suivantes
+ * portant le même jeton ne refont ni le décodage ni le calcul HMAC. Une entrée expire au plus tard
+ * avec le jeton lui-même.
+ */
+@Service
+public class JwtService {
+    private static final Logger log = LoggerFactory.getLogger(JwtService.class);
+
+    private static final String ROLES_CLAIM = "roles";
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private record Verified(Authentication authentication, long expiresAtMillis) {
+    }
+
+    private final SecretKey key;
+    private final Duration ttl;
+    private final Clock clock;
+    private final JwtParser parser;
+    private final Cache<String, Verified> verified; // null si cache-size = 0 : vérification à chaque requête
+
+    @Autowired
+    public JwtService(@Value("${ecommerce.security.jwt.secret:}") String secret,
+                      @Value("${ecommerce.security.jwt.ttl-minutes:60}") long ttlMinutes,
+                      @Value("${ecommerce.security.jwt.cache-size:10000}") long cacheSize) {
+        this(secret, Duration.ofMinutes(ttlMinutes), cacheSize, Clock.systemUTC());
+    }
+
+    JwtService(String secret, Duration ttl, long cacheSize, Clock clock) {
+        if (secret == null || secret.isBlank()) {
+            // Jetons valables pour cette instance seulement, jusqu'à son redémarrage
+            log.warn("ecommerce.security.jwt.secret is not set, using a random signing key");
+            this.key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        } else {
+            this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        }
+        this.ttl = ttl;
+        this.clock = clock;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .setClock(() -> Date.from(clock.instant()))
+                .build();
+        this.verified = cacheSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .ticker(() -> clock.millis() * 1_000_000)
+                .expireAfter(new Expiry<String, Verified>() {
+                    @Override
+                    public long expireAfterCreate(String token, Verified value, long currentTime) {
+                        return Math.max(0, value.expiresAtMillis() * 1_000_000 - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Verified value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(token, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Verified value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    // Jeton portant le nom et les rôles (sans préfixe ROLE_) de l'utilisateur authentifié
+    public String issue(Authentication authentication) {
+        List<String> roles = new ArrayList<>();
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name.startsWith(ROLE_PREFIX)) {
+                roles.add(name.substring(ROLE_PREFIX.length()));
+            }
+        }
+        Date now = Date.from(clock.instant());
+        return Jwts.builder()
+                .setSubject(authentication.getName())
+                .claim(ROLES_CLAIM, roles)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + ttl.toMillis()))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * Vérifie le jeton (ou le retrouve déjà vérifié dans le cache).
+     *
+     * @throws JwtException si le jeton est expiré, mal formé ou mal signé
+     */
+    public Authentication authenticate(String token) {
+        Verified cached = verified == null ? null : verified.getIfPresent(token);
+        if (cached != null) {
+            return cached.authentication();
+        }
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() == null) {
+            throw new JwtException("JWT has no expiration");
+        }
+        Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(
+                claims.getSubject(), null, authorities(claims.get(ROLES_CLAIM)));
+        if (verified != null) {
+            verified.put(token, new Verified(authentication, claims.getExpiration().getTime()));
+        }
+        return authentication;
+    }
+
+    private static List<GrantedAuthority> authorities(Object roles) {
+        if (!(roles instanceof Collection<?> names)) {
+            return List.of();
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+        for (Object name : names) {
+            authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX + name));
+        }
+        return List.copyOf(authorities);
+    }
+}
@@ -0,0 +1,190 @@
+package com.greta.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.greta.ecommerce.dto.IdempotentResponse;
+import com.greta.ecommerce.repository.IdempotentRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Déduplication des requêtes portant un en-tête Idempotency-Key.
+ * <p>
+ * La première requête d'une clé exécute l'action ; sa réponse est enregistrée en base dans la
+ * même transaction, puis gardée en mémoire (cache borné, expiration après ttl). Les requêtes
+ * suivantes avec la même clé reçoivent cette réponse sans toucher la base tant qu'elle est en
+ * mémoire ; celles qui arrivent pendant l'exécution attendent son résultat. Une clé réutilisée
+ * avec un autre corps est refusée (422).
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long IN_FLIGHT_TIMEOUT_SECONDS = 30;
+
+    private final IdempotentRequestRepository idempotentRequestRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Cache<String, CompletableFuture<IdempotentResponse>> responses;
+
+    public IdempotencyService(IdempotentRequestRepository idempotentRequestRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${ecommerce.idempotency.max-size:100000}") long maxSize,
+                              @Value("${ecommerce.idempotency.ttl-hours:24}") long ttlHours) {
+        this.idempotentRequestRepository = idempotentRequestRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Exécute l'action une seule fois par clé. L'action doit rejoindre la transaction courante
+     * (services @Transactional) pour être annulée si la clé s'avère déjà prise en base.
+     */
+    public ResponseEntity<?> execute(String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " must contain 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = hash(request);
+
+        CompletableFuture<IdempotentResponse> mine = new CompletableFuture<>();
+        CompletableFuture<IdempotentResponse> existing = responses.asMap().putIfAbsent(key, mine);
+        if (existing != null) {
+            return replay(await(existing), requestHash);
+        }
+
+        try {
+            LocalDateTime notBefore = LocalDateTime.now().minus(ttl);
+            Optional<IdempotentResponse> stored = idempotentRequestRepository.findByKey(key, notBefore);
+            if (stored.isPresent()) {
+                mine.complete(stored.get());
+                return replay(stored.get(), requestHash);
+            }
+
+            ResponseEntity<?>[] original = new ResponseEntity<?>[1];
+            IdempotentResponse response = transactionTemplate.execute(status -> {
+                original[0] = action.get();
+                IdempotentResponse recorded = record(requestHash, original[0]);
+                // Une réponse expirée mais pas encore purgée ne bloque pas la réutilisation de la clé
+                idempotentRequestRepository.deleteExpired(key, notBefore);
+                idempotentRequestRepository.save(key, recorded);
+                return recorded;
+            });
+            mine.complete(response);
+            return original[0];
+        } catch (DuplicateKeyException e) {
+            // Même clé traitée au même moment par une autre instance : sa réponse fait foi,
+            // notre transaction (et donc notre commande) a été annulée
+            Optional<IdempotentResponse> winner = idempotentRequestRepository
+                    .findByKey(key, LocalDateTime.now().minus(ttl));
+            if (winner.isEmpty()) {
+                // Aucune réponse gagnante (doublon levé par l'action elle-même) : rien n'est mémorisé
+                responses.asMap().remove(key, mine);
+                mine.completeExceptionally(e);
+                throw e;
+            }
+            mine.complete(winner.get());
+            return replay(winner.get(), requestHash);
+        } catch (RuntimeException e) {
+            // Échec non mémorisé : un nouvel essai avec la même clé réexécutera l'action
+            responses.asMap().remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = idempotentRequestRepository.deleteOlderThan(LocalDateTime.now().minus(ttl));
+        if (deleted > 0) {
+            log.debug("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private IdempotentResponse await(CompletableFuture<IdempotentResponse> inFlight) {
+        try {
+            return inFlight.get(IN_FLIGHT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            // La requête d'origine a échoué : le doublon reçoit la même erreur
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ResponseEntity<String> replay(IdempotentResponse response, String requestHash) {
+        if (!response.getRequestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used with a different request body");
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getStatusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true");
+        if (response.getLocation() != null) {
+            builder.header(HttpHeaders.LOCATION, response.getLocation());
+        }
+        return builder.body(response.getBody());
+    }
+
+    private IdempotentResponse record(String requestHash, ResponseEntity<?> response) {
+        try {
+            String location = response.getHeaders().getLocation() == null
+                    ? null : response.getHeaders().getLocation().toString();
+            return new IdempotentResponse(requestHash, response.getStatusCode().value(), location,
+                    objectMapper.writeValueAsString(response.getBody()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response cannot be serialized", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] json = objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Request cannot be fingerprinted", e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.greta.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.greta.ecommerce.dto.OrderTicket;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.exception.OrderQueueFullException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingestion asynchrone des commandes (ecommerce.orders.async.enabled=true).
+ * <p>
+ * La requête HTTP ne fait que réserver les stocks dans une transaction courte puis dépose la
+ * commande dans une file bornée ; un thread unique la vide par lots et enregistre chaque lot
+ * dans une seule transaction. File pleine : le client reçoit 429 sans qu'aucun stock soit réservé.
+ * Les commandes encore en file à l'arrêt de l'application sont enregistrées avant la fermeture.
+ */
+@Service
+@ConditionalOnProperty(name = "ecommerce.orders.async.enabled", havingValue = "true")
+public class OrderIngestionService implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(OrderIngestionService.class);
+
+    private static final Duration TICKET_RETENTION = Duration.ofHours(1);
+
+    private final OrderService orderService;
+    private final BlockingQueue<PendingOrder> queue;
+    private final Semaphore slots; // places libres dans la file, prises avant la réservation du stock
+    private final int maxBatchSize;
+    private final Cache<String, OrderTicket> tickets;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public OrderIngestionService(OrderService orderService,
+                                 @Value("${ecommerce.orders.async.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${ecommerce.orders.async.max-batch-size:500}") int maxBatchSize) {
+        this.orderService = orderService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.slots = new Semaphore(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.tickets = Caffeine.newBuilder()
+                .maximumSize(10L * queueCapacity)
+                .expireAfterWrite(TICKET_RETENTION)
+                .build();
+    }
+
+    public OrderTicket submit(Order order) {
+        // Une place est prise dans la file avant de réserver le stock : file pleine = 429 immédiat
+        if (!slots.tryAcquire()) {
+            throw new OrderQueueFullException("Order queue is full, retry later");
+        }
+        try {
+            orderService.acceptOrder(order);
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+
+        OrderTicket ticket = OrderTicket.queued(UUID.randomUUID().toString());
+        tickets.put(ticket.getTicket(), ticket);
+        PendingOrder pending = new PendingOrder(ticket.getTicket(), order);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Transaction englobante (Idempotency-Key) : la commande n'entre en file qu'une fois
+            // la réservation validée
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        queue.add(pending);
+                    } else {
+                        tickets.invalidate(ticket.getTicket());
+                        slots.release();
+                    }
+                }
+            });
+        } else {
+            queue.add(pending);
+        }
+        return ticket;
+    }
+
+    public Optional<OrderTicket> getTicket(String ticket) {
+        return Optional.ofNullable(tickets.getIfPresent(ticket));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                slots.release(batch.size());
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in order ingestion writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<PendingOrder> batch) {
+        try {
+            orderService.saveAcceptedOrders(batch.stream().map(PendingOrder::order).toList());
+            batch.forEach(this::markPersisted);
+        } catch (RuntimeException e) {
+            // Le lot est annulé en entier : on rejoue commande par commande pour isoler la fautive
+            log.warn("Batch of {} orders failed, retrying one by one", batch.size(), e);
+            for (PendingOrder pending : batch) {
+                try {
+                    orderService.saveAcceptedOrders(List.of(pending.order()));
+                    markPersisted(pending);
+                } catch (RuntimeException single) {
+                    log.error("Order {} could not be persisted, releasing its stock", pending.ticket(), single);
+                    orderService.releaseAcceptedOrder(pending.order());
+                    tickets.put(pending.ticket(), OrderTicket.failed(pending.ticket(), single.getMessage()));
+                }
+            }
+        }
+    }
+
+    private void markPersisted(PendingOrder pending) {
+        tickets.put(pending.ticket(), OrderTicket.persisted(pending.ticket(), pending.order().getId()));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "order-ingestion");
+        writer.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private record PendingOrder(String ticket, Order order) {
+    }
+}
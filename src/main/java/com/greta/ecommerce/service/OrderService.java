@@ -1,60 +1,124 @@
 package com.greta.ecommerce.service;
 
+import com.greta.ecommerce.datasource.ReadRouting;
+import com.greta.ecommerce.datasource.RecentWrites;
+import com.greta.ecommerce.dto.OrderCursor;
+import com.greta.ecommerce.dto.OrderPage;
 import com.greta.ecommerce.entity.Order;
 import com.greta.ecommerce.entity.OrderItem;
 import com.greta.ecommerce.entity.Product;
+import com.greta.ecommerce.event.OrderStatusChangedEvent;
 import com.greta.ecommerce.exception.ResourceNotFoundException;
 import com.greta.ecommerce.exception.StockException;
-import com.greta.ecommerce.repository.OrderItemRepository;
+import com.greta.ecommerce.outbox.OrderOutbox;
 import com.greta.ecommerce.repository.OrderRepository;
 import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.stock.StockLedger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @Service
 public class OrderService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
+    private final OrderStatsService orderStatsService;
+    private final OrderOutbox orderOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockLedger stockLedger; // null hors mode registre de stock
+    private final RecentWrites recentWrites; // null sans réplicas en lecture
 
     public OrderService(OrderRepository orderRepository,
-                        OrderItemRepository orderItemRepository,
-                        ProductRepository productRepository) {
+                        ProductRepository productRepository,
+                        OrderStatsService orderStatsService,
+                        OrderOutbox orderOutbox,
+                        ApplicationEventPublisher eventPublisher,
+                        ObjectProvider<StockLedger> stockLedger,
+                        ObjectProvider<RecentWrites> recentWrites) {
         this.orderRepository = orderRepository;
-        this.orderItemRepository = orderItemRepository;
         this.productRepository = productRepository;
+        this.orderStatsService = orderStatsService;
+        this.orderOutbox = orderOutbox;
+        this.eventPublisher = eventPublisher;
+        this.stockLedger = stockLedger.getIfAvailable();
+        this.recentWrites = recentWrites.getIfAvailable();
     }
 
+    // Les lectures en readOnly partent sur un réplica quand ils sont configurés (voir ReadReplicaConfig)
+    @Transactional(readOnly = true)
     public List<Order> getAllOrders() {
-        List<Order> orders = orderRepository.findAll();
-        // Pour chaque commande, on récupère ses items
-        for (Order order : orders) {
-            order.setItems(orderItemRepository.findByOrderId(order.getId()));
+        // Les items sont déjà chargés en lot par le repository
+        return orderRepository.findAll();
+    }
+
+    @Transactional(readOnly = true)
+    public OrderPage getOrdersPage(String after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        OrderCursor cursor = after == null || after.isBlank() ? null : OrderCursor.decode(after);
+
+        // Une ligne de plus que demandé pour savoir s'il existe une page suivante
+        List<Order> orders = orderRepository.findPage(cursor, pageSize + 1);
+        if (orders.size() <= pageSize) {
+            return new OrderPage(orders, null);
         }
-        return orders;
+        List<Order> page = orders.subList(0, pageSize);
+        Order last = page.get(pageSize - 1);
+        return new OrderPage(page, new OrderCursor(last.getDate(), last.getId()).encode());
     }
 
+    @Transactional(readOnly = true)
+    public void exportOrders(Consumer<Order> consumer) {
+        orderRepository.streamAll(consumer);
+    }
+
+    @Transactional(readOnly = true)
     public Order getOrderById(Long id) {
-        Order order = orderRepository.findById(id)
+        // Commande écrite à l'instant : le réplica peut ne pas l'avoir encore reçue
+        if (recentWrites != null && recentWrites.isRecentOrder(id)) {
+            return ReadRouting.onPrimary(() -> findOrder(id));
+        }
+        return findOrder(id);
+    }
+
+    private Order findOrder(Long id) {
+        return orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
-        order.setItems(orderItemRepository.findByOrderId(id));
-        return order;
     }
 
+    @Transactional(readOnly = true)
     public List<Order> getOrdersByEmail(String email) {
-        List<Order> orders = orderRepository.findByEmail(email);
-        for (Order order : orders) {
-            order.setItems(orderItemRepository.findByOrderId(order.getId()));
-        }
-        return orders;
+        return orderRepository.findByEmail(email);
     }
 
     @Transactional
     public Order createOrder(Order order) {
+        acceptOrder(order);
+
+        // Sauvegarde de la commande et de ses items (insérés en batch par le repository)
+        orderRepository.save(order);
+        orderStatsService.recordCreated(List.of(order));
+        orderOutbox.recordCreated(List.of(order));
+        recordWrite(order);
+
+        return order;
+    }
+
+    /**
+     * Valide la commande et réserve ses stocks, sans l'enregistrer : utilisé seul par
+     * l'ingestion asynchrone, qui persiste ensuite les commandes acceptées par lots.
+     */
+    @Transactional
+    public Order acceptOrder(Order order) {
         // Validation des données de base
         if (order.getEmail() == null || order.getItems() == null || order.getItems().isEmpty()) {
             throw new IllegalArgumentException("Order must have an email and items");
@@ -64,42 +128,53 @@ public class OrderService {
         order.setDate(LocalDateTime.now());
         order.setStatus("PENDING");
 
-        // Vérification des stocks
-        for (OrderItem item : order.getItems()) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + item.getProductId()));
-
-            if (product.getStock() < item.getQuantity()) {
-                throw new StockException("Insufficient stock for product: " + product.getName());
-            }
+        // Réservation atomique des stocks : un UPDATE conditionnel par produit, en un seul batch
+        // (ou dans le registre en mémoire s'il est activé). Le moindre refus lève une exception
+        // et annule toute la transaction.
+        Map<Long, Integer> quantities = quantitiesByProduct(order.getItems());
+        List<Long> rejected = stockLedger != null
+                ? stockLedger.reserve(quantities)
+                : productRepository.reserveStock(quantities);
+        if (!rejected.isEmpty()) {
+            Long productId = rejected.get(0);
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+            throw new StockException("Insufficient stock for product: " + product.getName());
         }
+        return order;
+    }
 
-        // Sauvegarde de la commande
-        orderRepository.save(order);
-
-        // Mise à jour des stocks et sauvegarde des items
-        for (OrderItem item : order.getItems()) {
-            // Mise à jour du stock
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + item.getProductId()));
-            productRepository.updateStock(product.getId(), product.getStock() - item.getQuantity());
-
-            // Sauvegarde de l'item
-            item.setOrderId(order.getId());
-            orderItemRepository.save(item);
-        }
+    // Enregistre en une transaction des commandes déjà acceptées (stocks réservés)
+    @Transactional
+    public List<Order> saveAcceptedOrders(List<Order> orders) {
+        orderRepository.saveAll(orders);
+        orderStatsService.recordCreated(orders);
+        orderOutbox.recordCreated(orders);
+        orders.forEach(this::recordWrite);
+        return orders;
+    }
 
-        return order;
+    // Rend le stock d'une commande acceptée qui ne sera finalement pas enregistrée
+    @Transactional
+    public void releaseAcceptedOrder(Order order) {
+        releaseStock(quantitiesByProduct(order.getItems()));
     }
 
     @Transactional
     public Order updateOrderStatus(Long orderId, String newStatus) {
         Order order = getOrderById(orderId);
+        // Statut relu sous verrou : la lecture précédente a pu être devancée par une autre transition
+        String previousStatus = orderRepository.lockStatus(orderId);
         order.setStatus(newStatus);
         orderRepository.save(order);
+        orderStatsService.recordStatusChange(order, previousStatus);
+        orderOutbox.recordStatusChange(order);
+        recordWrite(order);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, newStatus));
         return order;
     }
 
+    @Transactional(readOnly = true)
     public List<Order> getOrdersByStatus(String status) {
         return orderRepository.findByStatus(status);
     }
@@ -108,19 +183,46 @@ public class OrderService {
     public void cancelOrder(Long orderId) {
         Order order = getOrderById(orderId);
 
-        // On ne peut annuler que les commandes en attente
-        if (!"PENDING".equals(order.getStatus())) {
+        // On ne peut annuler que les commandes en attente ; le statut est relu sous verrou
+        // pour que deux annulations concurrentes ne remettent pas deux fois le stock en rayon
+        if (!"PENDING".equals(orderRepository.lockStatus(orderId))) {
             throw new IllegalStateException("Can only cancel pending orders");
         }
 
         // Remise en stock des produits
-        for (OrderItem item : order.getItems()) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + item.getProductId()));
-            productRepository.updateStock(product.getId(), product.getStock() + item.getQuantity());
-        }
+        releaseStock(quantitiesByProduct(order.getItems()));
 
         order.setStatus("CANCELLED");
         orderRepository.save(order);
+        orderStatsService.recordStatusChange(order, "PENDING");
+        orderOutbox.recordStatusChange(order);
+        recordWrite(order);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, "CANCELLED"));
+    }
+
+    private void recordWrite(Order order) {
+        if (recentWrites != null) {
+            recentWrites.recordOrder(order.getId());
+        }
+    }
+
+    private void releaseStock(Map<Long, Integer> quantities) {
+        if (stockLedger != null) {
+            stockLedger.release(quantities);
+        } else {
+            productRepository.releaseStock(quantities);
+        }
+    }
+
+    // Cumule les quantités par produit (un panier peut contenir plusieurs lignes du même produit)
+    private Map<Long, Integer> quantitiesByProduct(List<OrderItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Each item must have a product and a positive quantity");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
     }
 }
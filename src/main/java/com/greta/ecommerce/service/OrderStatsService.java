@@ -0,0 +1,242 @@
+package com.greta.ecommerce.service;
+
+import com.greta.ecommerce.dto.OrderStats;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.repository.OrderStatsRepository;
+import com.greta.ecommerce.repository.OrderStatsRepository.Bucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Statistiques de commandes précalculées : OrderService ajoute les deltas de chaque écriture dans sa propre
+ * transaction, les tableaux de bord lisent les seaux. rebuild() recalcule tout depuis orders / order_item
+ * en parallèle, un slot par tâche, pour réparer une dérive (modification directe en base, par exemple).
+ */
+@Service
+public class OrderStatsService {
+    private static final Logger log = LoggerFactory.getLogger(OrderStatsService.class);
+
+    private final OrderStatsRepository orderStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+    // Une seule vue cohérente pour les seaux d'un slot et les commandes de ce slot
+    private final TransactionTemplate snapshotTemplate;
+    private boolean snapshotIsolationSet; // sous rebuildLock
+    // Deux reconstructions simultanées appliqueraient deux fois la même correction. Pris avant toute
+    // connexion et jamais par les écritures de commandes. Les reconstructions planifiées (cron) ne doivent
+    // tourner que sur une instance.
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final int rebuildThreads;
+    private final long chunkSize;
+
+    public OrderStatsService(OrderStatsRepository orderStatsRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${ecommerce.stats.rebuild-threads:4}") int rebuildThreads,
+                             @Value("${ecommerce.stats.rebuild-chunk-size:100000}") long chunkSize) {
+        this.orderStatsRepository = orderStatsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setReadOnly(true);
+        this.rebuildThreads = rebuildThreads;
+        this.chunkSize = chunkSize;
+    }
+    public void recordCreated(List<Order> orders) {
+        Map<Bucket, long[]> daily = new HashMap<>();
+        Map<Bucket, long[]> byProduct = new HashMap<>();
+        for (Order order : orders) {
+            addDelta(daily, byProduct, order, order.getStatus(), 1);
+        }
+        apply(daily, byProduct);
+    }
+
+    // La commande porte déjà son nouveau statut
+    public void recordStatusChange(Order order, String previousStatus) {
+        if (Objects.equals(previousStatus, order.getStatus())) {
+            return;
+        }
+        Map<Bucket, long[]> daily = new HashMap<>();
+        Map<Bucket, long[]> byProduct = new HashMap<>();
+        addDelta(daily, byProduct, order, previousStatus, -1);
+        addDelta(daily, byProduct, order, order.getStatus(), 1);
+        apply(daily, byProduct);
+    }
+
+    private static void addDelta(Map<Bucket, long[]> daily, Map<Bucket, long[]> byProduct,
+                                 Order order, String status, int sign) {
+        int slot = (int) (order.getId() % OrderStatsRepository.SLOTS);
+        Map<Long, Long> quantities = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getProductId(), (long) item.getQuantity(), Long::sum);
+        }
+        long total = quantities.values().stream().mapToLong(Long::longValue).sum();
+        add(daily, new Bucket(order.getDate().toLocalDate(), status, slot), sign, sign * total);
+        quantities.forEach((productId, quantity) ->
+                add(byProduct, new Bucket(productId, status, slot), sign, sign * quantity));
+    }
+
+    private static void add(Map<Bucket, long[]> buckets, Bucket bucket, long orders, long quantity) {
+        long[] values = buckets.computeIfAbsent(bucket, b -> new long[2]);
+        values[0] += orders;
+        values[1] += quantity;
+    }
+
+    private void apply(Map<Bucket, long[]> daily, Map<Bucket, long[]> byProduct) {
+        orderStatsRepository.applyDeltas(daily, byProduct);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderStats> getByStatus(LocalDate from, LocalDate to) {
+        return orderStatsRepository.findByStatus(from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderStats> getDaily(LocalDate from, LocalDate to, String status) {
+        return orderStatsRepository.findDaily(from, to, status);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderStats> getTopProducts(String status, int limit) {
+        return orderStatsRepository.findTopProducts(status, limit);
+    }
+
+    // Reconstruction périodique optionnelle (ecommerce.stats.rebuild-cron, désactivée par défaut)
+    @Scheduled(cron = "${ecommerce.stats.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Recalcule les agrégats depuis les commandes, sans bloquer les écritures.
+     * <p>
+     * Pour chaque slot, les seaux actuels et les commandes du slot sont lus dans une même transaction
+     * REPEATABLE READ : l'écart entre les deux est la dérive à cette date. Chaque écriture de commande
+     * ajoute son delta aux seaux dans sa propre transaction, donc cet écart ne change plus ensuite ;
+     * il est retiré par un delta inverse, qui s'additionne sans conflit aux écritures concurrentes.
+     */
+    public Map<String, Object> rebuild() {
+        rebuildLock.lock();
+        try {
+            return rebuildSlots();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Map<String, Object> rebuildSlots() {
+        long start = System.nanoTime();
+        if (!snapshotIsolationSet) {
+            snapshotTemplate.setIsolationLevel(orderStatsRepository.snapshotIsolationLevel());
+            snapshotIsolationSet = true;
+        }
+        List<Future<SlotRebuild>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(rebuildThreads, OrderStatsRepository.SLOTS));
+        long orders = 0;
+        long chunks = 0;
+        long buckets = 0;
+        long corrected = 0;
+        try {
+            for (int slot = 0; slot < OrderStatsRepository.SLOTS; slot++) {
+                int s = slot;
+                results.add(executor.submit(() -> rebuildSlot(s)));
+            }
+            for (Future<SlotRebuild> result : results) {
+                SlotRebuild slot = result.get();
+                orders += slot.orders();
+                chunks += slot.chunks();
+                buckets += slot.buckets();
+                corrected += slot.corrected();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconstruction des statistiques interrompue", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Reconstruction des statistiques impossible", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Statistiques de commandes reconstruites : {} commandes, {} tranches, {} seaux corrigés, {} ms",
+                orders, chunks, corrected, durationMs);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("orders", orders);
+        report.put("chunks", chunks);
+        report.put("buckets", buckets);
+        report.put("corrected", corrected);
+        report.put("durationMs", durationMs);
+        return report;
+    }
+
+    private record SlotRebuild(long orders, long chunks, long buckets, long corrected) {
+    }
+
+    // Dérive (attendu - actuel) des seaux d'un slot, et ce qu'il a fallu parcourir pour l'obtenir
+    private record SlotDrift(Map<Bucket, long[]> daily, Map<Bucket, long[]> byProduct,
+                             long orders, long chunks, long buckets) {
+    }
+
+    private SlotRebuild rebuildSlot(int slot) {
+        SlotDrift drift = snapshotTemplate.execute(status -> {
+            // Première lecture de la transaction : fixe la vue utilisée ensuite pour parcourir les commandes
+            Map<Bucket, long[]> daily = negate(orderStatsRepository.findDailySlot(slot));
+            Map<Bucket, long[]> byProduct = negate(orderStatsRepository.findProductSlot(slot));
+            long orders = 0;
+            long chunks = 0;
+            long buckets = 0;
+            long[] range = orderStatsRepository.findOrderIdRange();
+            if (range != null) {
+                for (long from = range[0]; from <= range[1]; from += chunkSize) {
+                    long toId = Math.min(from + chunkSize - 1, range[1]);
+                    Map<Bucket, long[]> expectedDaily = orderStatsRepository.aggregateDaily(from, toId, slot);
+                    for (Map.Entry<Bucket, long[]> entry : expectedDaily.entrySet()) {
+                        add(daily, entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+                        orders += entry.getValue()[0];
+                    }
+                    Map<Bucket, long[]> expectedByProduct = orderStatsRepository.aggregateByProduct(from, toId, slot);
+                    expectedByProduct.forEach((bucket, values) -> add(byProduct, bucket, values[0], values[1]));
+                    buckets += expectedDaily.size() + expectedByProduct.size();
+                    chunks++;
+                }
+            }
+            return new SlotDrift(daily, byProduct, orders, chunks, buckets);
+        });
+
+        long corrected = countNonZero(drift.daily()) + countNonZero(drift.byProduct());
+        if (corrected > 0) {
+            transactionTemplate.executeWithoutResult(status ->
+                    orderStatsRepository.applyDeltas(drift.daily(), drift.byProduct()));
+        }
+        return new SlotRebuild(drift.orders(), drift.chunks(), drift.buckets(), corrected);
+    }
+
+    private static Map<Bucket, long[]> negate(Map<Bucket, long[]> buckets) {
+        buckets.values().forEach(values -> {
+            values[0] = -values[0];
+            values[1] = -values[1];
+        });
+        return buckets;
+    }
+
+    private static long countNonZero(Map<Bucket, long[]> deltas) {
+        return deltas.values().stream().filter(values -> values[0] != 0 || values[1] != 0).count();
+    }
+}
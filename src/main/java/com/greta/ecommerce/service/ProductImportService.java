@@ -0,0 +1,234 @@
+package com.greta.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.dto.ImportReport;
+import com.greta.ecommerce.dto.StockAdjustment;
+import com.greta.ecommerce.entity.Product;
+import com.greta.ecommerce.repository.ProductRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * Import en masse de produits et de corrections de stock, en CSV (ligne d'en-tête obligatoire)
+ * ou en NDJSON. Le corps est lu ligne à ligne sans être chargé en mémoire ; chaque ligne est
+ * validée avec les contraintes de l'entité puis écrite par lots JDBC, un lot par transaction.
+ * Une ligne invalide est rejetée et signalée dans le rapport sans bloquer les autres.
+ */
+@Service
+public class ProductImportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    static final int BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProductImportService(ProductRepository productRepository,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ImportReport importProducts(InputStream body, Format format) throws IOException {
+        return importRows(body, format, Product.class, csv -> {
+            Product product = new Product();
+            product.setName(field(csv, "name"));
+            product.setDescription(field(csv, "description"));
+            product.setPrice(field(csv, "price", Double::valueOf));
+            product.setStock(field(csv, "stock", Integer::valueOf));
+            product.setImageUrl(field(csv, "imageUrl"));
+            return product;
+        }, products -> {
+            productRepository.saveAll(products);
+            return new String[products.size()];
+        });
+    }
+
+    public ImportReport importStockAdjustments(InputStream body, Format format) throws IOException {
+        return importRows(body, format, StockAdjustment.class, csv -> new StockAdjustment(
+                field(csv, "productId", Long::valueOf),
+                field(csv, "delta", Integer::valueOf)
+        ), adjustments -> {
+            boolean[] applied = productRepository.adjustStock(adjustments);
+            String[] failures = new String[applied.length];
+            for (int i = 0; i < applied.length; i++) {
+                if (!applied[i]) {
+                    failures[i] = "Produit inconnu ou stock insuffisant pour le produit "
+                            + adjustments.get(i).getProductId();
+                }
+            }
+            return failures;
+        });
+    }
+
+    // Écrit un lot et renvoie, pour chaque ligne, le motif de son rejet (null si elle est écrite)
+    @FunctionalInterface
+    private interface BatchWriter<T> {
+        String[] write(List<T> rows);
+    }
+
+    private <T> ImportReport importRows(InputStream body, Format format, Class<T> type,
+                                        Function<Map<String, String>, T> csvMapper,
+                                        BatchWriter<T> writer) throws IOException {
+        ImportReport report = new ImportReport();
+        List<T> batch = new ArrayList<>(BATCH_SIZE);
+        List<Long> batchLines = new ArrayList<>(BATCH_SIZE);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 1 << 16);
+        List<String> header = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = parseCsvLine(line);
+                continue;
+            }
+
+            report.rowRead();
+            T row;
+            try {
+                row = format == Format.CSV
+                        ? csvMapper.apply(toRecord(header, parseCsvLine(line)))
+                        : objectMapper.readValue(line, type);
+            } catch (JsonProcessingException e) {
+                report.failed(lineNumber, "JSON invalide : " + e.getOriginalMessage());
+                continue;
+            } catch (IllegalArgumentException e) {
+                report.failed(lineNumber, "Valeur invalide : " + e.getMessage());
+                continue;
+            }
+
+            Set<ConstraintViolation<T>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                StringJoiner messages = new StringJoiner(", ");
+                violations.forEach(v -> messages.add(v.getPropertyPath() + " : " + v.getMessage()));
+                report.failed(lineNumber, messages.toString());
+                continue;
+            }
+
+            batch.add(row);
+            batchLines.add(lineNumber);
+            if (batch.size() == BATCH_SIZE) {
+                flush(batch, batchLines, writer, report);
+            }
+        }
+        flush(batch, batchLines, writer, report);
+        return report;
+    }
+
+    private <T> void flush(List<T> batch, List<Long> lines, BatchWriter<T> writer, ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        String[] failures;
+        try {
+            failures = transactionTemplate.execute(status -> writer.write(batch));
+        } catch (DataAccessException e) {
+            // Le lot est annulé en entier : on rejoue ligne par ligne pour isoler les fautives
+            failures = new String[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                List<T> row = List.of(batch.get(i));
+                try {
+                    failures[i] = transactionTemplate.execute(status -> writer.write(row))[0];
+                } catch (DataAccessException single) {
+                    failures[i] = "Erreur base de données : " + single.getMostSpecificCause().getMessage();
+                }
+            }
+        }
+        // Comptés seulement une fois leur transaction validée
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] == null) {
+                report.succeeded(1);
+            } else {
+                report.failed(lines.get(i), failures[i]);
+            }
+        }
+        batch.clear();
+        lines.clear();
+    }
+
+    private static Map<String, String> toRecord(List<String> header, List<String> values) {
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException(values.size() + " colonnes au lieu de " + header.size());
+        }
+        Map<String, String> record = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            record.put(header.get(i).trim(), values.get(i));
+        }
+        return record;
+    }
+
+    // Colonne absente ou vide : null, la validation se charge des champs obligatoires
+    private static String field(Map<String, String> record, String column) {
+        String value = record.get(column);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static <V> V field(Map<String, String> record, String column, Function<String, V> parser) {
+        String value = field(record, column);
+        return value == null ? null : parser.apply(value);
+    }
+
+    // CSV sur une ligne : séparateur virgule, champs entre guillemets doubles, "" pour un guillemet
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("guillemet non fermé");
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
@@ -0,0 +1,80 @@
+package com.greta.ecommerce.stock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock disponible d'un produit réparti sur plusieurs cellules atomiques, à la manière d'un
+ * LongAdder : chaque thread réserve d'abord dans « sa » cellule, sans verrou. Aucune cellule ne
+ * descend sous zéro, donc la somme non plus. Quand le stock restant est trop morcelé pour une
+ * réservation, les cellules sont regroupées sous verrou avant de conclure à un refus.
+ */
+final class ProductStock {
+    // Une cellule toutes les 8 cases (64 octets) pour éviter le faux partage entre cœurs
+    private static final int PADDING = 8;
+    static final int STRIPES = Math.max(2, Math.min(64, Integer.highestOneBit(
+            Runtime.getRuntime().availableProcessors()) * 2));
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    // Passe à true quand le compteur est remplacé (rechargement depuis la base) : voir StockLedger
+    volatile boolean retired;
+    // Ordre du chargement dont provient le compteur : un chargement plus ancien ne le remplace pas
+    final long ticket;
+
+    ProductStock(long available, long ticket) {
+        this.ticket = ticket;
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, available / STRIPES + (i < available % STRIPES ? 1 : 0));
+        }
+    }
+
+    boolean tryReserve(int quantity) {
+        int home = home();
+        for (int i = 0; i < STRIPES; i++) {
+            int index = ((home + i) & (STRIPES - 1)) * PADDING;
+            long current = cells.get(index);
+            while (current >= quantity) {
+                if (cells.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+                current = cells.get(index);
+            }
+        }
+        return reserveFromAll(quantity, home);
+    }
+
+    void release(int quantity) {
+        cells.addAndGet(home() * PADDING, quantity);
+    }
+
+    long available() {
+        long total = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    private synchronized boolean reserveFromAll(int quantity, int home) {
+        long total = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            total += cells.getAndSet(i * PADDING, 0);
+        }
+        boolean reserved = total >= quantity;
+        if (reserved) {
+            total -= quantity;
+        }
+        // Le reste est redistribué pour que les réservations suivantes repassent par le chemin rapide
+        for (int i = 0; i < STRIPES; i++) {
+            long share = total / STRIPES + (i < total % STRIPES ? 1 : 0);
+            if (share > 0) {
+                cells.addAndGet(((home + i) & (STRIPES - 1)) * PADDING, share);
+            }
+        }
+        return reserved;
+    }
+
+    private static int home() {
+        return (int) Thread.currentThread().threadId() & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,144 @@
+package com.greta.ecommerce.stock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Journal local des variations de stock, une ligne "seq,productId,delta" par produit.
+ * Le segment courant est scellé (renommé) à chaque réconciliation puis supprimé une fois
+ * reporté en base. Une dernière ligne incomplète (arrêt brutal pendant l'écriture) est ignorée.
+ * Les appels d'écriture doivent être faits sous le verrou du StockLedger.
+ */
+final class StockJournal implements AutoCloseable {
+    private static final String CURRENT = "current.log";
+    private static final String SEALED_PREFIX = "sealed-";
+
+    private final Path directory;
+    private volatile FileChannel channel;
+    private long nextSeq;
+    private boolean empty = true;
+
+    StockJournal(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    void open(long nextSeq) throws IOException {
+        this.nextSeq = nextSeq;
+        this.channel = FileChannel.open(directory.resolve(CURRENT),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.empty = channel.size() == 0;
+    }
+
+    /**
+     * Ajoute une variation par produit, en une seule écriture.
+     *
+     * @return le numéro de séquence de la dernière ligne écrite
+     */
+    long append(Map<Long, Integer> deltas) throws IOException {
+        StringBuilder lines = new StringBuilder(deltas.size() * 24);
+        for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+            lines.append(nextSeq++).append(',').append(entry.getKey()).append(',').append(entry.getValue()).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        empty = false;
+        return nextSeq - 1;
+    }
+
+    // Peut être appelé hors verrou : un seul force() couvre les écritures de plusieurs threads
+    void sync() throws IOException {
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // Segment scellé entre-temps : seal() l'a déjà forcé sur disque
+        }
+    }
+
+    /**
+     * Ferme le segment courant et en ouvre un nouveau.
+     *
+     * @return le segment scellé, ou null s'il n'y avait rien à sceller
+     */
+    Path seal() throws IOException {
+        if (empty) {
+            return null;
+        }
+        channel.force(false);
+        channel.close();
+        Path sealed = directory.resolve(SEALED_PREFIX + (nextSeq - 1) + ".log");
+        Files.move(directory.resolve(CURRENT), sealed);
+        open(nextSeq);
+        return sealed;
+    }
+
+    // Segments scellés pas encore supprimés, du plus ancien au plus récent
+    List<Path> sealedSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(SEALED_PREFIX))
+                    .sorted(Comparator.comparingLong(StockJournal::lastSeqOf))
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    // Tous les segments, segment courant compris (en dernier) : utilisé à la reprise après arrêt
+    List<Path> allSegments() throws IOException {
+        List<Path> segments = sealedSegments();
+        Path current = directory.resolve(CURRENT);
+        if (Files.exists(current)) {
+            segments.add(current);
+        }
+        return segments;
+    }
+
+    /**
+     * Cumule par produit les variations d'un segment dont le numéro dépasse afterSeq.
+     *
+     * @return le plus grand numéro de séquence lu (afterSeq si aucun)
+     */
+    static long read(Path segment, long afterSeq, Map<Long, Long> deltas) throws IOException {
+        long lastSeq = afterSeq;
+        String content = Files.readString(segment, StandardCharsets.US_ASCII);
+        int end = content.lastIndexOf('\n');
+        if (end < 0) {
+            return lastSeq;
+        }
+        for (String line : content.substring(0, end).split("\n")) {
+            String[] fields = line.split(",");
+            long seq = Long.parseLong(fields[0]);
+            if (seq > afterSeq) {
+                deltas.merge(Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long::sum);
+                lastSeq = Math.max(lastSeq, seq);
+            }
+        }
+        return lastSeq;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private static long lastSeqOf(Path sealed) {
+        String name = sealed.getFileName().toString();
+        return Long.parseLong(name.substring(SEALED_PREFIX.length(), name.length() - ".log".length()));
+    }
+}
@@ -0,0 +1,473 @@
+package com.greta.ecommerce.stock;
+
+import com.greta.ecommerce.event.ProductChangedEvent;
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.repository.StockLedgerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registre de stock en mémoire (ecommerce.stock.ledger.enabled=true), utilisé par OrderService
+ * à la place des UPDATE conditionnels sur product.
+ * <p>
+ * Le stock disponible de chaque produit est tenu dans un {@link ProductStock} sans verrou. Chaque
+ * réservation est ajoutée au journal local une fois la transaction de la commande validée (aussitôt
+ * hors transaction), chaque remise en stock avant d'être créditée aux compteurs ; le journal est
+ * reporté périodiquement dans product.stock, par lots, avec un point de reprise en base
+ * (stock_ledger_checkpoint) mis à jour dans la même transaction. Au démarrage, les entrées du
+ * journal postérieures au point de reprise sont rejouées avant toute nouvelle réservation.
+ * <p>
+ * Verrous : reconcileLock sérialise les reports en base, journalLock protège l'écriture du journal,
+ * la table des variations non encore reportées et l'installation des compteurs. Aucun des deux n'est
+ * pris par un (re)chargement de compteur pendant sa lecture en base : voir {@link #load}.
+ */
+@Component
+@ConditionalOnProperty(name = "ecommerce.stock.ledger.enabled", havingValue = "true")
+public class StockLedger implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    private final ProductRepository productRepository;
+    private final StockLedgerRepository stockLedgerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final long reconcileIntervalMs;
+    private final boolean fsync;
+
+    private final Map<Long, ProductStock> counters = new ConcurrentHashMap<>();
+    // Variations pas encore reportées en base, réservations pas encore journalisées comprises ; sous journalLock
+    private final Map<Long, Long> unapplied = new HashMap<>();
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+    // Incrémenté sous journalLock au début et à la fin de chaque report en base : impair pendant un report
+    private volatile long reportEpoch;
+    private final AtomicLong loadTickets = new AtomicLong();
+
+    private StockJournal journal;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public StockLedger(ProductRepository productRepository,
+                       StockLedgerRepository stockLedgerRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${ecommerce.stock.ledger.directory:data/stock-ledger}") String directory,
+                       @Value("${ecommerce.stock.ledger.reconcile-interval-ms:1000}") long reconcileIntervalMs,
+                       @Value("${ecommerce.stock.ledger.fsync:true}") boolean fsync) {
+        this.productRepository = productRepository;
+        this.stockLedgerRepository = stockLedgerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.directory = Path.of(directory);
+        this.reconcileIntervalMs = reconcileIntervalMs;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Réserve toutes les quantités ou aucune. Dans une transaction, la réservation n'est journalisée
+     * qu'une fois celle-ci validée, et rendue si elle est annulée.
+     *
+     * @return les ids des produits inexistants ou dont le stock est insuffisant (vide si tout est réservé)
+     */
+    public List<Long> reserve(Map<Long, Integer> quantities) {
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        Map<Long, Integer> deltas = new TreeMap<>();
+        sorted.forEach((productId, quantity) -> deltas.put(productId, -quantity));
+
+        while (true) {
+            Map<Long, ProductStock> taken = new HashMap<>();
+            for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+                ProductStock stock = counter(entry.getKey());
+                if (stock == null || !stock.tryReserve(entry.getValue())) {
+                    giveBack(taken, sorted);
+                    return List.of(entry.getKey());
+                }
+                taken.put(entry.getKey(), stock);
+            }
+            if (hold(taken, deltas)) {
+                break;
+            }
+            // Un compteur a été rechargé entre-temps : on recommence sur le nouveau
+            giveBack(taken, sorted);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        unhold(deltas);
+                        return;
+                    }
+                    try {
+                        write(deltas, false);
+                    } catch (RuntimeException e) {
+                        // Commande déjà validée : la réservation reste en mémoire, mais ne survivrait pas à un arrêt
+                        log.error("Stock reservation {} could not be journaled", deltas, e);
+                    }
+                }
+            });
+        } else {
+            try {
+                write(deltas, true);
+            } catch (RuntimeException e) {
+                unhold(deltas);
+                throw e;
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Remet en stock les quantités données ; dans une transaction, seulement une fois celle-ci validée.
+     */
+    public void release(Map<Long, Integer> quantities) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseNow(quantities);
+                }
+            });
+        } else {
+            releaseNow(quantities);
+        }
+    }
+
+    // Journalise la remise en stock, puis la crédite aux compteurs une fois le journal sur disque
+    private void releaseNow(Map<Long, Integer> quantities) {
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            if (counter(entry.getKey()) != null) { // produit supprimé entre-temps : rien à rendre
+                deltas.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        write(deltas, true);
+        credit(deltas);
+    }
+
+    public long available(Long productId) {
+        ProductStock stock = counter(productId);
+        return stock == null ? 0 : stock.available();
+    }
+
+    // Le stock a été modifié en base hors du registre : le compteur est rechargé s'il existe
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Une modification de fiche (UPDATED) ne touche pas au stock
+        ProductChangedEvent.Type type = event.getType();
+        if ((type == ProductChangedEvent.Type.STOCK_CHANGED || type == ProductChangedEvent.Type.DELETED)
+                && counters.containsKey(event.getProductId())) {
+            refresh(event.getProductId());
+        }
+    }
+
+    void refresh(Long productId) {
+        load(productId, true);
+    }
+
+    /**
+     * Reporte en base les segments scellés du journal. Un segment dont le report échoue reste
+     * sur disque et sera repris au prochain passage ; le point de reprise évite tout double report.
+     */
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            journalLock.lock();
+            try {
+                journal.seal();
+            } finally {
+                journalLock.unlock();
+            }
+            apply(journal.sealedSegments());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("Stock ledger reconciliation failed, will retry", e);
+        }
+    }
+
+    // Cumule les segments, les reporte en une transaction, les retire des variations en attente puis les supprime
+    private void apply(List<Path> segments) throws IOException {
+        if (segments.isEmpty()) {
+            return;
+        }
+        long checkpoint = stockLedgerRepository.findCheckpoint();
+        Map<Long, Long> deltas = new HashMap<>();
+        long lastSeq = checkpoint;
+        for (Path segment : segments) {
+            lastSeq = Math.max(lastSeq, StockJournal.read(segment, checkpoint, deltas));
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (lastSeq > checkpoint) {
+            long newCheckpoint = lastSeq;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Connexion déjà obtenue : un chargement qui attend la fin du report ne la bloque pas
+                    advanceReportEpoch(true);
+                    if (!deltas.isEmpty()) {
+                        productRepository.applyStockDeltas(deltas);
+                    }
+                    stockLedgerRepository.saveCheckpoint(newCheckpoint);
+                });
+            } catch (RuntimeException e) {
+                // Transaction annulée : la base n'a pas bougé, les variations restent en attente
+                advanceReportEpoch(false);
+                throw e;
+            }
+            journalLock.lock();
+            try {
+                deltas.forEach((productId, delta) ->
+                        unapplied.merge(productId, -delta, (a, b) -> a + b == 0 ? null : a + b));
+                reportEpoch++;
+            } finally {
+                journalLock.unlock();
+            }
+            log.debug("Stock ledger reconciled up to entry {} ({} products)", newCheckpoint, deltas.size());
+        }
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    // Passe l'époque à impaire (début de report) ou paire (fin), si elle ne l'est pas déjà
+    private void advanceReportEpoch(boolean reporting) {
+        journalLock.lock();
+        try {
+            if (((reportEpoch & 1) == 1) != reporting) {
+                reportEpoch++;
+            }
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private ProductStock counter(Long productId) {
+        ProductStock stock = counters.get(productId);
+        return stock != null ? stock : load(productId, false);
+    }
+
+    /**
+     * (Re)charge un compteur : stock en base + variations journalisées mais pas encore reportées.
+     * Le stock est lu sans verrou ; il n'est installé, sous journalLock, que si aucun report n'a
+     * commencé ou fini entre-temps (la variation reportée serait comptée deux fois ou pas du tout)
+     * et si aucun chargement plus récent n'a déjà été installé. Sinon, la lecture est recommencée.
+     *
+     * @param replace true pour remplacer le compteur existant, false pour le réutiliser
+     * @return null si le produit n'existe pas
+     */
+    private ProductStock load(Long productId, boolean replace) {
+        while (true) {
+            long epoch = reportEpoch;
+            long ticket = loadTickets.incrementAndGet();
+            Optional<Integer> stock = (epoch & 1) == 0 ? productRepository.findStock(productId) : null;
+            journalLock.lock();
+            try {
+                ProductStock current = counters.get(productId);
+                if (current != null && (!replace || current.ticket > ticket)) {
+                    return current;
+                }
+                if (stock != null && reportEpoch == epoch) {
+                    if (current != null) {
+                        current.retired = true;
+                        counters.remove(productId);
+                    }
+                    if (stock.isEmpty()) {
+                        return null;
+                    }
+                    ProductStock counter = new ProductStock(
+                            Math.max(0, stock.get() + unapplied.getOrDefault(productId, 0L)), ticket);
+                    counters.put(productId, counter);
+                    return counter;
+                }
+            } finally {
+                journalLock.unlock();
+            }
+            // Report en cours : on relit une fois la transaction validée
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /**
+     * Retient une réservation déjà prise sur les compteurs dans les variations en attente, pour qu'un
+     * rechargement en tienne compte avant même qu'elle soit journalisée.
+     *
+     * @return false si l'un des compteurs a été remplacé : rien n'est alors retenu
+     */
+    private boolean hold(Map<Long, ProductStock> stocks, Map<Long, Integer> deltas) {
+        journalLock.lock();
+        try {
+            for (ProductStock stock : stocks.values()) {
+                if (stock.retired) {
+                    return false;
+                }
+            }
+            deltas.forEach((productId, delta) ->
+                    unapplied.merge(productId, (long) delta, (a, b) -> a + b == 0 ? null : a + b));
+            return true;
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    // Annule une réservation retenue mais jamais journalisée : rendue aux compteurs actuels
+    private void unhold(Map<Long, Integer> deltas) {
+        Map<Long, Integer> inverse = new TreeMap<>();
+        deltas.forEach((productId, delta) -> inverse.put(productId, -delta));
+        credit(inverse);
+    }
+
+    /**
+     * Ajoute les variations aux variations en attente et les crédite aux compteurs actuels. Sous le même
+     * verrou que l'installation des compteurs : un compteur rechargé juste avant ne les contient pas encore,
+     * un compteur rechargé juste après les contient déjà.
+     */
+    private void credit(Map<Long, Integer> deltas) {
+        journalLock.lock();
+        try {
+            deltas.forEach((productId, delta) -> {
+                unapplied.merge(productId, (long) delta, (a, b) -> a + b == 0 ? null : a + b);
+                ProductStock stock = counters.get(productId);
+                if (stock != null) {
+                    stock.release(delta);
+                }
+            });
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * Écrit les variations au journal puis le force sur disque.
+     *
+     * @param revoke true si l'appelant annule la variation en mémoire quand le forçage échoue : une entrée
+     *               inverse est alors ajoutée pour que le journal n'en retienne rien non plus
+     */
+    private void write(Map<Long, Integer> deltas, boolean revoke) {
+        journalLock.lock();
+        try {
+            journal.append(deltas);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            journalLock.unlock();
+        }
+        if (!fsync) {
+            return;
+        }
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            if (!revoke) {
+                throw new UncheckedIOException(e);
+            }
+            Map<Long, Integer> inverse = new TreeMap<>();
+            deltas.forEach((productId, delta) -> inverse.put(productId, -delta));
+            journalLock.lock();
+            try {
+                journal.append(inverse);
+            } catch (IOException compensation) {
+                e.addSuppressed(compensation);
+            } finally {
+                journalLock.unlock();
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void giveBack(Map<Long, ProductStock> taken, Map<Long, Integer> quantities) {
+        taken.forEach((productId, stock) -> stock.release(quantities.get(productId)));
+    }
+
+    @Override
+    public void start() {
+        reconcileLock.lock();
+        try {
+            journal = new StockJournal(directory);
+            // Reprise : tout ce qui est sur disque (segment courant compris) est reporté en base
+            apply(journal.allSegments());
+            journal.open(stockLedgerRepository.findCheckpoint() + 1);
+            counters.clear();
+            unapplied.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            reconcileLock.unlock();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "stock-ledger-reconcile"));
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly,
+                reconcileIntervalMs, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        halt(true);
+    }
+
+    // Arrêt sans report final : simule un arrêt brutal dans les tests de reprise
+    void halt(boolean reconcile) {
+        if (!running) {
+            return;
+        }
+        running = false;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            if (reconcile) {
+                reconcile();
+            }
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Démarre avant le serveur web et s'arrête après lui
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
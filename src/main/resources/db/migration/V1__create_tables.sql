@@ -0,0 +1,30 @@
+-- Création de la table PRODUCT
+CREATE TABLE product (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(100) NOT NULL,
+    price DECIMAL(10,2) NOT NULL CHECK (price > 0),
+    stock INT NOT NULL CHECK (stock >= 0),
+    description TEXT,
+    image_url VARCHAR(255),
+    version BIGINT NOT NULL DEFAULT 0 -- incrémenté à chaque modification, sert d'ETag
+);
+
+-- Création de la table ORDERS (attention à ne pas utiliser ORDER qui est un mot réservé)
+CREATE TABLE orders (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    email VARCHAR(100) NOT NULL,
+    date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    status VARCHAR(20) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0 -- incrémenté à chaque modification, sert d'ETag
+);
+
+-- Création de la table ORDER_ITEM
+CREATE TABLE order_item (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    order_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INT NOT NULL CHECK (quantity > 0),
+    INDEX idx_order_item_order (order_id),
+    FOREIGN KEY (order_id) REFERENCES orders(id),
+    FOREIGN KEY (product_id) REFERENCES product(id)
+);
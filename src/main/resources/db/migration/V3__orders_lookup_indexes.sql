@@ -0,0 +1,7 @@
+-- Index des recherches de OrderRepository
+-- Pagination par curseur (findPage) et export trié (streamAll) : ORDER BY date, id
+CREATE INDEX idx_orders_date_id ON orders (date, id);
+-- findByEmail : WHERE email = ?, commandes d'un client dans l'ordre chronologique
+CREATE INDEX idx_orders_email_date ON orders (email, date);
+-- findByStatus : WHERE status = ?
+CREATE INDEX idx_orders_status_date ON orders (status, date);
@@ -0,0 +1,8 @@
+-- Dernière entrée du journal du StockLedger reportée dans product.stock.
+-- Mis à jour dans la même transaction que le report : une entrée n'est jamais appliquée deux fois.
+CREATE TABLE stock_ledger_checkpoint (
+    id INT PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
+
+INSERT INTO stock_ledger_checkpoint (id, last_seq) VALUES (1, 0);
@@ -0,0 +1,11 @@
+-- Réponses des POST /api/orders rejouables via l'en-tête Idempotency-Key.
+-- Insérées dans la même transaction que la commande : une clé enregistrée = une commande créée.
+CREATE TABLE idempotent_request (
+    request_key VARCHAR(100) PRIMARY KEY,
+    request_hash CHAR(64) NOT NULL, -- SHA-256 du corps, pour refuser la réutilisation d'une clé
+    status_code INT NOT NULL,
+    location VARCHAR(255),
+    response_body TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_idempotent_request_created (created_at)
+);
@@ -0,0 +1,31 @@
+-- Agrégats des commandes, tenus à jour par OrderService dans la transaction de chaque écriture.
+-- Chaque compteur est réparti sur 8 lignes (slot = id de commande % 8) pour que les commandes
+-- simultanées ne se bloquent pas toutes sur la même ligne ; les lectures somment les slots.
+CREATE TABLE order_stats_daily (
+    order_day DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    slot TINYINT NOT NULL,
+    order_count BIGINT NOT NULL,
+    item_quantity BIGINT NOT NULL,
+    PRIMARY KEY (order_day, status, slot)
+);
+
+CREATE TABLE order_stats_product (
+    product_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    slot TINYINT NOT NULL,
+    order_count BIGINT NOT NULL,
+    item_quantity BIGINT NOT NULL,
+    PRIMARY KEY (product_id, status, slot)
+);
+
+-- Reprise des commandes existantes
+INSERT INTO order_stats_daily (order_day, status, slot, order_count, item_quantity)
+SELECT CAST(o.date AS DATE), o.status, o.id % 8, COUNT(DISTINCT o.id), SUM(oi.quantity)
+FROM orders o JOIN order_item oi ON oi.order_id = o.id
+GROUP BY CAST(o.date AS DATE), o.status, o.id % 8;
+
+INSERT INTO order_stats_product (product_id, status, slot, order_count, item_quantity)
+SELECT oi.product_id, o.status, o.id % 8, COUNT(DISTINCT o.id), SUM(oi.quantity)
+FROM orders o JOIN order_item oi ON oi.order_id = o.id
+GROUP BY oi.product_id, o.status, o.id % 8;
@@ -0,0 +1,24 @@
+-- Changements de commandes (création, changement de statut) écrits dans la même transaction que la commande.
+-- Le relais leur attribue à la publication un numéro seq croissant et sans trou : c'est la position
+-- que les consommateurs de /api/orders/changes?since= retiennent.
+CREATE TABLE order_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    seq BIGINT, -- NULL tant que la ligne n'est pas publiée
+    order_id BIGINT NOT NULL,
+    change_type VARCHAR(20) NOT NULL, -- CREATED, STATUS_CHANGED
+    status VARCHAR(20) NOT NULL,
+    payload TEXT, -- commande complète en JSON pour CREATED
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    published_at TIMESTAMP NULL,
+    UNIQUE INDEX uk_order_outbox_seq (seq)
+);
+
+-- Position du relais, verrouillée pendant une publication : un seul relais à la fois, toutes instances confondues.
+-- purged_seq : dernier seq supprimé par la purge (un consommateur plus en retard doit tout resynchroniser).
+CREATE TABLE order_outbox_relay (
+    id INT PRIMARY KEY,
+    last_seq BIGINT NOT NULL,
+    purged_seq BIGINT NOT NULL
+);
+
+INSERT INTO order_outbox_relay (id, last_seq, purged_seq) VALUES (1, 0, 0);
@@ -0,0 +1,11 @@
+-- Position du sink (ecommerce.outbox.sink), distincte de celle du relais : le relais attribue et valide
+-- les seq d'abord, le sink reçoit ensuite les lignes relues par seq. Un envoi repris après un échec
+-- renvoie donc les mêmes seq pour les mêmes changements.
+-- Verrouillée pendant un envoi : un seul envoi à la fois, toutes instances confondues.
+CREATE TABLE order_outbox_sink (
+    id INT PRIMARY KEY,
+    delivered_seq BIGINT NOT NULL
+);
+
+-- Jusqu'ici les changements publiés étaient envoyés au sink dans la même transaction
+INSERT INTO order_outbox_sink (id, delivered_seq) SELECT 1, last_seq FROM order_outbox_relay WHERE id = 1;
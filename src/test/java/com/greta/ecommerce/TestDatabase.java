@@ -0,0 +1,35 @@
+package com.greta.ecommerce;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.UUID;
+
+/**
+ * Base H2 en mémoire (mode MySQL) migrée avec les scripts Flyway de l'application.
+ */
+public final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    public static EmbeddedDatabase create() {
+        return create("");
+    }
+
+    // options : paramètres H2 supplémentaires, par exemple ";LOCK_TIMEOUT=30000"
+    public static EmbeddedDatabase create(String options) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName(UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE" + options)
+                .build();
+        Flyway.configure()
+                .dataSource(database)
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        return database;
+    }
+}
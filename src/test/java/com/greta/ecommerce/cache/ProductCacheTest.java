@@ -0,0 +1,54 @@
+package com.greta.ecommerce.cache;
+
+import com.greta.ecommerce.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductCacheTest {
+
+    private final ProductCache cache = new ProductCache(100, 300);
+
+    private static Product product(long id, String name) {
+        return new Product(id, name, null, 10.0, 1, null);
+    }
+
+    private String cachedName(long id) {
+        return cache.getById(id, key -> Optional.of(product(key, "rechargé"))).orElseThrow().getName();
+    }
+
+    // L'écriture d'un autre produit pendant le chargement n'écarte pas la valeur chargée
+    @Test
+    void evictingAnotherProductKeepsInFlightLoad() {
+        cache.getById(1L, id -> {
+            cache.evict(2L);
+            return Optional.of(product(id, "chargé"));
+        });
+
+        assertEquals("chargé", cachedName(1L));
+    }
+
+    @Test
+    void evictingLoadedProductDiscardsInFlightLoad() {
+        cache.getById(1L, id -> {
+            cache.evict(1L);
+            return Optional.of(product(id, "périmé"));
+        });
+
+        assertEquals("rechargé", cachedName(1L));
+    }
+
+    // La liste complète contient tous les produits : toute invalidation écarte son chargement
+    @Test
+    void anyEvictionDiscardsInFlightCatalogLoad() {
+        cache.getAll(() -> {
+            cache.evict(2L);
+            return List.of(product(1L, "périmé"));
+        });
+
+        assertEquals("rechargé", cache.getAll(() -> List.of(product(1L, "rechargé"))).get(0).getName());
+    }
+}
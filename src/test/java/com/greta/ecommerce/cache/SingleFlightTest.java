@@ -0,0 +1,72 @@
+package com.greta.ecommerce.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private final SingleFlight<Long, String> flights = new SingleFlight<>();
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        Future<String> first = executor.submit(() -> flights.execute(1L, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "produit 1";
+        }));
+        loading.await();
+
+        List<Future<String>> others = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            others.add(executor.submit(() -> flights.execute(1L, () -> {
+                loads.incrementAndGet();
+                return "autre chargement";
+            })));
+        }
+        Thread.sleep(200); // laisse aux appels le temps de rejoindre le chargement en cours
+        release.countDown();
+
+        assertEquals("produit 1", first.get());
+        for (Future<String> other : others) {
+            assertEquals("produit 1", other.get());
+        }
+        assertEquals(1, loads.get());
+        executor.shutdown();
+
+        // Terminé : l'appel suivant relance un chargement
+        assertEquals("nouveau", flights.execute(1L, () -> "nouveau"));
+    }
+
+    @Test
+    void failureIsNotKept() {
+        assertThrows(IllegalStateException.class, () -> flights.execute(2L, () -> {
+            throw new IllegalStateException("base indisponible");
+        }));
+
+        assertEquals("ok", flights.execute(2L, () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.greta.ecommerce.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.CatalogSnapshots;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.dto.ProductQuery;
+import com.greta.ecommerce.entity.Product;
+import com.greta.ecommerce.exception.GlobalExceptionHandler;
+import com.greta.ecommerce.exception.InvalidQueryException;
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.search.ProductSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProductControllerTest {
+
+    private EmbeddedDatabase database;
+    private ProductRepository productRepository;
+    private CatalogSnapshots catalogSnapshots;
+    private ProductSearchIndex productSearchIndex;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        productRepository = new ProductRepository(new JdbcTemplate(database), new ProductCache(100, 300), event -> { });
+        catalogSnapshots = new CatalogSnapshots(new ObjectMapper());
+        productSearchIndex = new ProductSearchIndex(productRepository);
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                        new ProductController(productRepository, productSearchIndex, catalogSnapshots))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void unchangedCatalogAnswersNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/products").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(content().string(""));
+
+        productRepository.reserveStock(Map.of(1L, 1));
+
+        String newETag = mockMvc.perform(get("/api/products").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(eTag, newETag);
+    }
+
+    @Test
+    void catalogIsServedPrecompressedAndRebuiltOnlyAfterChange() throws Exception {
+        String json = mockMvc.perform(get("/api/products"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        byte[] gzip = mockMvc.perform(get("/api/products").header("Accept-Encoding", "deflate, gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(json, inflate(new GZIPInputStream(new ByteArrayInputStream(gzip))));
+
+        byte[] deflate = mockMvc.perform(get("/api/products").header("Accept-Encoding", "gzip;q=0, deflate"))
+                .andExpect(header().string("Content-Encoding", "deflate"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(json, inflate(new InflaterInputStream(new ByteArrayInputStream(deflate))));
+
+        List<Product> cached = productRepository.findAll();
+        CatalogSnapshots.Snapshot snapshot = catalogSnapshots.of(cached, products -> "\"c1\"");
+        // Même liste : retrouvé sans calculer d'ETag
+        assertSame(snapshot, catalogSnapshots.of(cached, products -> {
+            throw new AssertionError("ETag recalculé");
+        }));
+        // Nouvelle liste, même ETag : les octets sont repris
+        CatalogSnapshots.Snapshot reloaded = catalogSnapshots.of(List.copyOf(cached), products -> "\"c1\"");
+        assertSame(snapshot.select(null).bytes(), reloaded.select(null).bytes());
+
+        productRepository.reserveStock(Map.of(1L, 1));
+        assertNotEquals(snapshot, catalogSnapshots.of(productRepository.findAll(), products -> "\"c2\""));
+    }
+
+    private static String inflate(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void searchReturnsCurrentStock() throws Exception {
+        productSearchIndex.rebuild();
+        productRepository.reserveStock(Map.of(1L, 3));
+
+        mockMvc.perform(get("/api/products/search").param("q", "iphone"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].stock").value(47));
+    }
+
+    @Test
+    void productETagFollowsVersion() throws Exception {
+        mockMvc.perform(get("/api/products/2"))
+                .andExpect(header().string("ETag", "\"p2-0\""));
+
+        productRepository.reserveStock(Map.of(2L, 1));
+
+        mockMvc.perform(get("/api/products/2").header("If-None-Match", "\"p2-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"p2-1\""));
+        mockMvc.perform(get("/api/products/2").header("If-None-Match", "\"p2-1\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void filtersSortsAndProjectsRequestedFields() throws Exception {
+        mockMvc.perform(get("/api/products")
+                        .param("minPrice", "1000").param("sort", "-price").param("fields", "id,price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[2].id").value(2))
+                .andExpect(jsonPath("$[0].name").doesNotExist())
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+
+        mockMvc.perform(get("/api/products").param("size", "2").param("page", "1"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[0].name").value("MacBook Pro Plus Plus"))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+    }
+
+    @Test
+    void rejectsUnknownFieldsAndSorts() {
+        ProductQuery unknownField = new ProductQuery();
+        unknownField.setFields("id,password");
+        ProductQuery unknownSort = new ProductQuery();
+        unknownSort.setSort("price; DROP TABLE product");
+
+        assertThrows(InvalidQueryException.class, () -> productRepository.findSummaries(unknownField));
+        assertThrows(InvalidQueryException.class, () -> productRepository.findSummaries(unknownSort));
+    }
+
+    @Test
+    void stockEndpointAppliesRelativeChange() throws Exception {
+        mockMvc.perform(put("/api/products/1/stock").param("quantity", "5").param("increment", "false"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/products/1/stock").param("quantity", "20").param("increment", "true"))
+                .andExpect(status().isOk());
+        assertEquals(65, productRepository.findById(1L).orElseThrow().getStock());
+
+        mockMvc.perform(put("/api/products/1/stock").param("quantity", "66").param("increment", "false"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/api/products/99/stock").param("quantity", "1").param("increment", "true"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void missingProductIsReportedFromAffectedRows() throws Exception {
+        mockMvc.perform(put("/api/products/99").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Fantôme\",\"price\":10}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/products/99"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/products/4"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void updatesAreConditionalOnIfMatch() throws Exception {
+        String body = "{\"name\":\"Renommé\",\"price\":10}";
+        mockMvc.perform(put("/api/products/2").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("If-Match", "\"p2-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"p2-1\""))
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(jsonPath("$.stock").value(45));
+
+        // ETag périmé : 412 avec l'ETag courant
+        mockMvc.perform(put("/api/products/2").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("If-Match", "\"p2-0\""))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string("ETag", "\"p2-1\""));
+        mockMvc.perform(put("/api/products/2").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("If-Match", "\"p3-1\""))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string("ETag", "\"p2-1\""));
+        // Produit absent : 404, que l'en-tête soit valide ou non
+        mockMvc.perform(put("/api/products/99").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("If-Match", "\"p2-1\""))
+                .andExpect(status().isNotFound());
+        // If-Match l'emporte sur la version du corps
+        mockMvc.perform(put("/api/products/2").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Autre\",\"price\":10,\"version\":0}")
+                        .header("If-Match", "*"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"p2-2\""));
+    }
+
+    // Sans If-Match, la version du corps est la condition : 409 avec la version courante
+    @Test
+    void bodyVersionConflictReturnsCurrentVersion() throws Exception {
+        mockMvc.perform(put("/api/products/2").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renommé\",\"price\":10,\"version\":0}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"p2-1\""));
+
+        mockMvc.perform(put("/api/products/2").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Autre\",\"price\":10,\"version\":0}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.currentVersion").value(1));
+
+        assertEquals("Renommé", productRepository.findById(2L).orElseThrow().getName());
+    }
+
+    // Le stock ne change pas par la fiche : le champ est refusé plutôt qu'ignoré
+    @Test
+    void stockInUpdateBodyIsRejected() throws Exception {
+        mockMvc.perform(put("/api/products/2").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renommé\",\"price\":10,\"stock\":5}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.stock").exists());
+
+        Product product = productRepository.findById(2L).orElseThrow();
+        assertEquals(45, product.getStock());
+        assertEquals(0, product.getVersion());
+    }
+}
@@ -0,0 +1,60 @@
+package com.greta.ecommerce.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReadReplicaConfigTest {
+
+    @Configuration
+    @EnableConfigurationProperties(DataSourceProperties.class)
+    static class Properties {
+    }
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(Properties.class, ReadReplicaConfig.class)
+            .withPropertyValues(
+                    "spring.datasource.url=jdbc:h2:mem:primary",
+                    "spring.datasource.username=sa",
+                    "ecommerce.datasource.replicas=jdbc:h2:mem:replica",
+                    "ecommerce.datasource.pool-size=10");
+
+    @Test
+    void poolsDefaultToConfiguredPoolSize() {
+        contextRunner.run(context -> {
+            DatabaseNodes nodes = context.getBean(DatabaseNodes.class);
+            HikariDataSource primary = (HikariDataSource) nodes.primary();
+
+            assertEquals(10, primary.getMaximumPoolSize());
+            assertEquals("sa", primary.getUsername());
+            assertEquals("primary", primary.getPoolName());
+        });
+    }
+
+    // Les réglages Hikari (profil virtual notamment) s'appliquent au primaire comme aux réplicas
+    @Test
+    void hikariPropertiesApplyToEveryPool() {
+        contextRunner
+                .withPropertyValues(
+                        "spring.datasource.hikari.maximum-pool-size=20",
+                        "spring.datasource.hikari.connection-timeout=2000")
+                .run(context -> {
+                    DatabaseNodes nodes = context.getBean(DatabaseNodes.class);
+                    HikariDataSource primary = (HikariDataSource) nodes.primary();
+                    HikariDataSource replica = (HikariDataSource) nodes.nextReplica().orElseThrow();
+
+                    assertEquals("jdbc:h2:mem:primary", primary.getJdbcUrl());
+                    assertEquals("jdbc:h2:mem:replica", replica.getJdbcUrl());
+                    assertEquals("replica-0", replica.getPoolName());
+                    for (HikariDataSource pool : new HikariDataSource[]{primary, replica}) {
+                        assertEquals(20, pool.getMaximumPoolSize());
+                        assertEquals(2000, pool.getConnectionTimeout());
+                    }
+                });
+    }
+}
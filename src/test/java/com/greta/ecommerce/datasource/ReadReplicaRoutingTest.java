@@ -0,0 +1,179 @@
+package com.greta.ecommerce.datasource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.outbox.OrderOutbox;
+import com.greta.ecommerce.repository.OrderItemRepository;
+import com.greta.ecommerce.repository.OrderOutboxRepository;
+import com.greta.ecommerce.repository.OrderRepository;
+import com.greta.ecommerce.repository.OrderStatsRepository;
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.service.OrderService;
+import com.greta.ecommerce.service.OrderStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringJUnitConfig(ReadReplicaRoutingTest.Config.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReadReplicaRoutingTest {
+
+    // Deux bases H2 indépendantes : rien n'est répliqué, ce qui rend visible la base lue
+    @Configuration
+    @EnableTransactionManagement
+    @Import({OrderService.class, OrderStatsService.class, OrderStatsRepository.class,
+            OrderOutbox.class, OrderOutboxRepository.class,
+            OrderRepository.class, OrderItemRepository.class, ProductRepository.class, ProductCache.class})
+    static class Config {
+        @Bean
+        EmbeddedDatabase primaryDatabase() {
+            return TestDatabase.create();
+        }
+
+        @Bean
+        EmbeddedDatabase replicaDatabase() {
+            return TestDatabase.create();
+        }
+
+        @Bean
+        SwitchableDataSource replica(@Qualifier("replicaDatabase") EmbeddedDatabase replicaDatabase) {
+            return new SwitchableDataSource(replicaDatabase);
+        }
+
+        @Bean
+        DatabaseNodes databaseNodes(@Qualifier("primaryDatabase") EmbeddedDatabase primaryDatabase,
+                                    SwitchableDataSource replica) {
+            return new DatabaseNodes(primaryDatabase, List.of(replica));
+        }
+
+        @Bean
+        @Primary
+        DataSource dataSource(DatabaseNodes databaseNodes) {
+            return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(databaseNodes));
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        RecentWrites recentWrites() {
+            return new RecentWrites(Duration.ofSeconds(30), 1000);
+        }
+    }
+
+    // Réplica que l'on peut rendre injoignable
+    static class SwitchableDataSource extends DelegatingDataSource {
+        volatile boolean down;
+
+        SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("replica unreachable");
+            }
+            return super.getConnection();
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DatabaseNodes databaseNodes;
+
+    @Autowired
+    private SwitchableDataSource replica;
+
+    @Autowired
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        new JdbcTemplate(databaseNodes.primary()).update("UPDATE product SET name = 'primary', stock = 100 WHERE id = 1");
+        new JdbcTemplate(replica).update("UPDATE product SET name = 'replica' WHERE id = 1");
+    }
+
+    private String readName(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                jdbcTemplate.queryForObject("SELECT name FROM product WHERE id = 1", String.class));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaAndWritesToPrimary() {
+        assertEquals("replica", readName(true));
+        assertEquals("primary", readName(false));
+        assertEquals("primary", jdbcTemplate.queryForObject("SELECT name FROM product WHERE id = 1", String.class));
+    }
+
+    @Test
+    void unreachableReplicaIsSkippedUntilHealthCheckPasses() {
+        replica.down = true;
+        assertEquals("primary", readName(true));
+        assertEquals(0, databaseNodes.healthyReplicas());
+
+        replica.down = false;
+        assertEquals("primary", readName(true));
+        databaseNodes.checkHealth();
+        assertEquals(1, databaseNodes.healthyReplicas());
+        assertEquals("replica", readName(true));
+    }
+
+    @Test
+    void orderIsReadFromPrimaryRightAfterCreation() {
+        Order order = new Order();
+        order.setEmail("client@example.com");
+        order.setItems(List.of(new OrderItem(null, null, 1L, 2)));
+        Order created = orderService.createOrder(order);
+
+        // Absente du réplica (non répliqué ici) mais lue sur le primaire juste après l'écriture
+        assertEquals(created.getId(), orderService.getOrderById(created.getId()).getId());
+        assertTrue(orderService.getOrdersByEmail("client@example.com").isEmpty());
+    }
+}
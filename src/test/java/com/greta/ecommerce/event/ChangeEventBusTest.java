@@ -0,0 +1,226 @@
+package com.greta.ecommerce.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.controller.ChangeStreamController;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.exception.GlobalExceptionHandler;
+import com.greta.ecommerce.outbox.OrderOutbox;
+import com.greta.ecommerce.repository.OrderItemRepository;
+import com.greta.ecommerce.repository.OrderOutboxRepository;
+import com.greta.ecommerce.repository.OrderRepository;
+import com.greta.ecommerce.repository.OrderStatsRepository;
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.service.OrderService;
+import com.greta.ecommerce.service.OrderStatsService;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringJUnitConfig(ChangeEventBusTest.Config.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ChangeEventBusTest {
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({ChangeEventBus.class, OrderService.class, OrderStatsService.class, OrderStatsRepository.class,
+            OrderOutbox.class, OrderOutboxRepository.class,
+            OrderRepository.class, OrderItemRepository.class, ProductRepository.class, ProductCache.class})
+    static class Config {
+        @Bean
+        EmbeddedDatabase dataSource() {
+            return TestDatabase.create("");
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(EmbeddedDatabase dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EmbeddedDatabase dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+    }
+
+    @Autowired
+    private ChangeEventBus changeEventBus;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE product SET stock = 100");
+        mockMvc = MockMvcBuilders.standaloneSetup(new ChangeStreamController(changeEventBus))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    private static Order order(long... productAndQuantity) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < productAndQuantity.length; i += 2) {
+            items.add(new OrderItem(null, null, productAndQuantity[i], (int) productAndQuantity[i + 1]));
+        }
+        Order order = new Order();
+        order.setEmail("client@example.com");
+        order.setItems(items);
+        return order;
+    }
+
+    private MockHttpServletResponse subscribe(String url) throws Exception {
+        return mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn().getResponse();
+    }
+
+    // Les envois partent sur un thread virtuel : on attend que le flux contienne l'élément attendu
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return response.getContentAsString();
+    }
+
+    private static int count(String content, String pattern) {
+        Matcher matcher = Pattern.compile(Pattern.quote(pattern)).matcher(content);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    void stockChangesAreCoalescedPerFlush() throws Exception {
+        MockHttpServletResponse products12 = subscribe("/api/products/stream?ids=1,2");
+        MockHttpServletResponse product3 = subscribe("/api/products/stream?ids=3");
+
+        orderService.createOrder(order(1, 2, 2, 3));
+        orderService.createOrder(order(1, 5));
+        changeEventBus.flushStockChanges();
+
+        String content = awaitContent(products12, "\"id\":2");
+        assertEquals(1, count(content, "\"id\":1"), content);
+        assertTrue(content.contains("event:stock\ndata:{\"id\":1,\"stock\":93}"), content);
+        assertTrue(content.contains("data:{\"id\":2,\"stock\":97}"), content);
+        assertEquals("", product3.getContentAsString());
+    }
+
+    @Test
+    void orderStatusReachesOnlyItsSubscribers() throws Exception {
+        Order shipped = orderService.createOrder(order(1, 1));
+        Order cancelled = orderService.createOrder(order(2, 1));
+        MockHttpServletResponse shippedStream = subscribe("/api/orders/stream?ids=" + shipped.getId());
+        MockHttpServletResponse cancelledStream = subscribe("/api/orders/stream?ids=" + cancelled.getId());
+
+        orderService.updateOrderStatus(shipped.getId(), "SHIPPED");
+        orderService.cancelOrder(cancelled.getId());
+
+        String shippedContent = awaitContent(shippedStream, "SHIPPED");
+        String cancelledContent = awaitContent(cancelledStream, "CANCELLED");
+        assertTrue(shippedContent.contains("event:order-status\ndata:{\"id\":" + shipped.getId() + ",\"status\":\"SHIPPED\"}"));
+        assertTrue(!shippedContent.contains("CANCELLED"), shippedContent);
+        assertTrue(!cancelledContent.contains("SHIPPED"), cancelledContent);
+        assertEquals(2, changeEventBus.getSubscriberCount());
+    }
+
+    @Test
+    void timedOutStreamCompletesNormally() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/products/stream?ids=1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1, changeEventBus.getSubscriberCount());
+
+        // Sur un vrai serveur, les en-têtes du flux sont déjà partis
+        result.getResponse().setCommitted(true);
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+        assertEquals(0, changeEventBus.getSubscriberCount());
+    }
+
+    // Client lent : les valeurs d'une même clé se remplacent, un tampon plein est vidé au profit de "resync"
+    @Test
+    void slowSubscriberIsCoalescedThenResynced() {
+        List<Runnable> tasks = new ArrayList<>();
+        Executor deferred = tasks::add;
+        List<String> sent = new ArrayList<>();
+        SseEmitter emitter = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                StringBuilder event = new StringBuilder();
+                builder.build().forEach(part -> event.append(part.getData()));
+                sent.add(event.toString());
+            }
+        };
+        ChangeEventBus.Subscriber subscriber = new ChangeEventBus.Subscriber(emitter, 2, deferred);
+
+        subscriber.offer("p1", "stock", new ChangeEventBus.StockDelta(1L, 10));
+        subscriber.offer("p1", "stock", new ChangeEventBus.StockDelta(1L, 9));
+        subscriber.offer("p2", "stock", new ChangeEventBus.StockDelta(2L, 5));
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        assertEquals(2, sent.size(), sent.toString());
+        assertTrue(sent.get(0).contains("StockDelta[id=1, stock=9]"), sent.toString());
+
+        sent.clear();
+        subscriber.offer("p1", "stock", new ChangeEventBus.StockDelta(1L, 8));
+        subscriber.offer("p2", "stock", new ChangeEventBus.StockDelta(2L, 4));
+        subscriber.offer("p3", "stock", new ChangeEventBus.StockDelta(3L, 7));
+        subscriber.offer("p4", "stock", new ChangeEventBus.StockDelta(4L, 1));
+        tasks.remove(0).run();
+        assertEquals(2, sent.size(), sent.toString());
+        assertTrue(sent.get(0).contains("event:resync"), sent.toString());
+        assertTrue(sent.get(1).contains("StockDelta[id=4, stock=1]"), sent.toString());
+    }
+}
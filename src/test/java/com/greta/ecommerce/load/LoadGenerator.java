@@ -0,0 +1,157 @@
+package com.greta.ecommerce.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Test de charge de GET /api/products et POST /api/orders contre une instance déjà démarrée.
+ * Lancer une fois sans profil puis avec --spring.profiles.active=virtual et comparer les deux rapports.
+ * Les commandes tournent sur load.productIds, réapprovisionnés de load.restock unités avant la phase POST
+ * pour mesurer des commandes acceptées plutôt que des refus de stock.
+ *
+ * Propriétés : load.url (http://localhost:8080), load.concurrency (500), load.seconds (30),
+ * load.productIds (1,2,3,4), load.restock (1000000).
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("load.url", "http://localhost:8080");
+        int concurrency = Integer.getInteger("load.concurrency", 500);
+        int seconds = Integer.getInteger("load.seconds", 30);
+        String[] productIds = System.getProperty("load.productIds", "1,2,3,4").split(",");
+        int restock = Integer.getInteger("load.restock", 1_000_000);
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        HttpRequest listProducts = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products")).GET().build();
+        List<HttpRequest> createOrders = new ArrayList<>();
+        for (String productId : productIds) {
+            createOrders.add(HttpRequest.newBuilder(URI.create(baseUrl + "/api/orders"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"email\":\"load@example.com\",\"items\":[{\"productId\":" + productId.trim() + ",\"quantity\":1}]}"))
+                    .build());
+        }
+
+        System.out.printf("%s, %d clients, %d s%n", baseUrl, concurrency, seconds);
+        run(client, "GET /api/products", List.of(listProducts), concurrency, seconds);
+        for (String productId : productIds) {
+            HttpRequest restockRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/" + productId.trim()
+                            + "/stock?quantity=" + restock + "&increment=true"))
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            int status = client.send(restockRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+            System.out.printf("réapprovisionnement produit %s : +%d (statut %d)%n", productId.trim(), restock, status);
+        }
+        run(client, "POST /api/orders", createOrders, concurrency, seconds);
+    }
+
+    // Chaque client envoie à tour de rôle les requêtes de la liste
+    private static void run(HttpClient client, String name, List<HttpRequest> requests, int concurrency, int seconds)
+            throws InterruptedException {
+        long begin = System.nanoTime();
+        long deadline = begin + Duration.ofSeconds(seconds).toNanos();
+        Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder completed = new LongAdder();
+        AtomicLong sequence = new AtomicLong();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = requests.get((int) (sequence.getAndIncrement() % requests.size()));
+                        long start = System.nanoTime();
+                        int status;
+                        try {
+                            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        latencies.record(System.nanoTime() - start);
+                        completed.increment();
+                        statuses.computeIfAbsent(status, k -> new AtomicLong()).incrementAndGet();
+                    }
+                });
+            }
+        }
+        // Les requêtes en vol à l'échéance sont comptées : le débit se rapporte à la durée réelle
+        double elapsedSeconds = (System.nanoTime() - begin) / 1e9;
+
+        System.out.printf("%-20s %8.0f req/s  p50=%6.1f ms  p99=%7.1f ms  statuts=%s%n",
+                name,
+                completed.sum() / elapsedSeconds,
+                latencies.percentile(0.50) / 1e3,
+                latencies.percentile(0.99) / 1e3,
+                new TreeMap<>(statuses));
+    }
+
+    /**
+     * Histogramme log-linéaire des latences en microsecondes, partagé par tous les clients :
+     * exact sous 64 µs, puis 32 cases par puissance de deux (erreur relative inférieure à 3 %).
+     */
+    static final class LatencyHistogram {
+        private static final int LINEAR = 64;
+        private static final int SUB_BUCKETS = 32;
+
+        private final AtomicLongArray counts = new AtomicLongArray(LINEAR + 58 * SUB_BUCKETS);
+
+        void record(long nanos) {
+            counts.incrementAndGet(index(Math.max(0, nanos / 1000)));
+        }
+
+        // Borne haute, en microsecondes, de la case contenant le percentile demandé
+        long percentile(double p) {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(counts.length() - 1);
+        }
+
+        static int index(long micros) {
+            if (micros < LINEAR) {
+                return (int) micros;
+            }
+            // micros >> shift tombe dans [32, 63]
+            int shift = 63 - Long.numberOfLeadingZeros(micros) - 5;
+            return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (micros >> shift) - SUB_BUCKETS;
+        }
+
+        static long upperBound(int index) {
+            if (index < LINEAR) {
+                return index;
+            }
+            int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+            long mantissa = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+            return ((mantissa + 1) << shift) - 1;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.greta.ecommerce.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.dto.OrderChange;
+import com.greta.ecommerce.dto.OrderChangePage;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.exception.StockException;
+import com.greta.ecommerce.repository.OrderItemRepository;
+import com.greta.ecommerce.repository.OrderOutboxRepository;
+import com.greta.ecommerce.repository.OrderRepository;
+import com.greta.ecommerce.repository.OrderStatsRepository;
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.service.OrderService;
+import com.greta.ecommerce.service.OrderStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringJUnitConfig(OrderOutboxRelayTest.Config.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"ecommerce.outbox.sink=memory", "ecommerce.outbox.batch-size=3"})
+class OrderOutboxRelayTest {
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({OrderOutbox.class, OrderOutboxRelay.class, OrderOutboxRepository.class,
+            OrderService.class, OrderStatsService.class, OrderStatsRepository.class,
+            OrderRepository.class, OrderItemRepository.class, ProductRepository.class, ProductCache.class})
+    static class Config {
+        @Bean
+        EmbeddedDatabase dataSource() {
+            return TestDatabase.create(";LOCK_TIMEOUT=30000");
+        }
+
+        @Bean
+        FlakySink sink() {
+            return new FlakySink();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(EmbeddedDatabase dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EmbeddedDatabase dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private OrderOutboxRelay relay;
+
+    @Autowired
+    private FlakySink sink;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Reçoit le lot puis échoue une fois : la position du sink n'est pas validée
+    static class FlakySink extends InMemoryOrderChangeSink {
+        volatile boolean failAfterPublish;
+
+        @Override
+        public synchronized void publish(List<OrderChange> published) {
+            super.publish(published);
+            if (failAfterPublish) {
+                failAfterPublish = false;
+                throw new IllegalStateException("commit failed after publish");
+            }
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE product SET stock = 10000");
+    }
+
+    private static Order order(long productId, int quantity) {
+        Order order = new Order();
+        order.setEmail("client@example.com");
+        order.setItems(List.of(new OrderItem(null, null, productId, quantity)));
+        return order;
+    }
+
+    private static List<Long> seqs(List<OrderChange> changes) {
+        return changes.stream().map(OrderChange::getSeq).collect(Collectors.toList());
+    }
+
+    @Test
+    void changesAreRelayedInWriteOrderAndPagedBySeq() {
+        Order shipped = orderService.createOrder(order(1, 2));
+        Order cancelled = orderService.createOrder(order(2, 1));
+        orderService.updateOrderStatus(shipped.getId(), "SHIPPED");
+        orderService.cancelOrder(cancelled.getId());
+        assertEquals(0, orderOutbox.changesSince(0, 10).getChanges().size());
+
+        relay.relay();
+
+        List<OrderChange> published = sink.getChanges();
+        assertEquals(List.of(1L, 2L, 3L, 4L), seqs(published));
+        assertEquals(OrderChange.Type.CREATED, published.get(0).getType());
+        assertTrue(published.get(0).getOrder().contains("\"email\":\"client@example.com\""));
+        assertEquals("SHIPPED", published.get(2).getStatus());
+        assertEquals(cancelled.getId(), published.get(3).getOrderId());
+        assertEquals("CANCELLED", published.get(3).getStatus());
+
+        OrderChangePage first = orderOutbox.changesSince(0, 3);
+        assertEquals(List.of(1L, 2L, 3L), seqs(first.getChanges()));
+        OrderChangePage second = orderOutbox.changesSince(first.getNext(), 3);
+        assertEquals(List.of(4L), seqs(second.getChanges()));
+        OrderChangePage empty = orderOutbox.changesSince(second.getNext(), 3);
+        assertEquals(0, empty.getChanges().size());
+        assertEquals(4, empty.getNext());
+    }
+
+    @Test
+    void rolledBackOrderLeavesNoChange() {
+        jdbcTemplate.update("UPDATE product SET stock = 1 WHERE id = 1");
+        assertThrows(StockException.class, () -> orderService.createOrder(order(1, 5)));
+
+        relay.relay();
+
+        assertEquals(0, sink.getChanges().size());
+    }
+
+    // Commandes validées dans le désordre pendant que le relais tourne : chaque commande une fois, seq sans trou
+    @Test
+    void concurrentWritesAreRelayedWithoutGapOrDuplicate() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Order>> created = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            long product = 1 + i % 3;
+            created.add(executor.submit(() -> orderService.createOrder(order(product, 1))));
+        }
+        Future<?> relaying = executor.submit(() -> {
+            for (int i = 0; i < 20; i++) {
+                relay.relay();
+            }
+        });
+        Set<Long> orderIds = new HashSet<>();
+        for (Future<Order> order : created) {
+            orderIds.add(order.get().getId());
+        }
+        relaying.get();
+        executor.shutdown();
+        relay.relay();
+
+        List<OrderChange> feed = new ArrayList<>();
+        long since = 0;
+        OrderChangePage page;
+        do {
+            page = orderOutbox.changesSince(since, 7);
+            feed.addAll(page.getChanges());
+            since = page.getNext();
+        } while (!page.getChanges().isEmpty());
+
+        List<Long> expectedSeqs = new ArrayList<>();
+        for (long seq = 1; seq <= 60; seq++) {
+            expectedSeqs.add(seq);
+        }
+        assertEquals(expectedSeqs, seqs(feed));
+        assertEquals(orderIds, feed.stream().map(OrderChange::getOrderId).collect(Collectors.toSet()));
+        assertEquals(expectedSeqs, seqs(sink.getChanges()));
+    }
+
+    // Une commande validée après une autre mais écrite avant elle dans l'outbox, pendant que l'envoi au sink
+    // échoue : le renvoi porte les mêmes seq pour les mêmes changements
+    @Test
+    void failedDeliveryIsResentWithTheSameSeqs() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Order> slow = executor.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            Order order = orderService.createOrder(order(1, 1));
+            written.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return order;
+        }));
+        written.await();
+        Order fast = orderService.createOrder(order(2, 1));
+
+        sink.failAfterPublish = true;
+        relay.relay();
+        commit.countDown();
+        Order late = slow.get();
+        executor.shutdown();
+        relay.relay();
+
+        Map<Long, Long> orderBySeq = new HashMap<>();
+        for (OrderChange change : sink.getChanges()) {
+            Long previous = orderBySeq.putIfAbsent(change.getSeq(), change.getOrderId());
+            assertTrue(previous == null || previous.equals(change.getOrderId()), "seq " + change.getSeq() + " reused");
+        }
+        assertEquals(Map.of(1L, fast.getId(), 2L, late.getId()), orderBySeq);
+        assertEquals(List.of(1L, 1L, 2L), seqs(sink.getChanges()));
+    }
+
+    @Test
+    void purgedPositionIsGone() {
+        orderService.createOrder(order(1, 1));
+        orderService.createOrder(order(2, 1));
+        relay.relay();
+        jdbcTemplate.update("UPDATE order_outbox SET published_at = published_at - INTERVAL '1000' HOUR WHERE seq = 1");
+
+        relay.purgePublished();
+
+        ResponseStatusException gone = assertThrows(ResponseStatusException.class, () -> orderOutbox.changesSince(0, 10));
+        assertEquals(HttpStatus.GONE, gone.getStatusCode());
+        assertEquals(List.of(2L), seqs(orderOutbox.changesSince(1, 10).getChanges()));
+    }
+}
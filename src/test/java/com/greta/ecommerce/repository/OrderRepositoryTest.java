@@ -0,0 +1,156 @@
+package com.greta.ecommerce.repository;
+
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.dto.OrderCursor;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.metrics.StatementCountingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class OrderRepositoryTest {
+
+    private EmbeddedDatabase database;
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private OrderRepository orderRepository;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        dataSource = new StatementCountingDataSource(database);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        orderRepository = new OrderRepository(jdbcTemplate, new OrderItemRepository(jdbcTemplate));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private void insertOrders(int count, String email) {
+        for (int i = 0; i < count; i++) {
+            jdbcTemplate.update("INSERT INTO orders (email, status) VALUES (?, 'PENDING')", email);
+            Long orderId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders", Long.class);
+            jdbcTemplate.update("INSERT INTO order_item (order_id, product_id, quantity) VALUES (?, 1, 1)", orderId);
+            jdbcTemplate.update("INSERT INTO order_item (order_id, product_id, quantity) VALUES (?, 2, 3)", orderId);
+        }
+    }
+
+    @Test
+    void findAllUsesConstantNumberOfStatements() {
+        insertOrders(5, "small@example.com");
+        StatementCountingDataSource.drainCount();
+        orderRepository.findAll();
+        int smallCount = StatementCountingDataSource.drainCount();
+
+        insertOrders(200, "large@example.com");
+        StatementCountingDataSource.drainCount();
+        List<Order> orders = orderRepository.findAll();
+
+        assertEquals(206, orders.size());
+        int largeCount = StatementCountingDataSource.drainCount();
+        assertEquals(smallCount, largeCount);
+        assertEquals(2, largeCount);
+    }
+
+    @Test
+    void findByEmailLoadsItemsInBatch() {
+        insertOrders(50, "client@example.com");
+        StatementCountingDataSource.drainCount();
+
+        List<Order> orders = orderRepository.findByEmail("client@example.com");
+
+        assertEquals(50, orders.size());
+        orders.forEach(order -> assertEquals(2, order.getItems().size()));
+        assertEquals(2, StatementCountingDataSource.drainCount());
+    }
+
+    @Test
+    void findByStatusReturnsEmptyItemListsWithoutItems() {
+        jdbcTemplate.update("INSERT INTO orders (email, status) VALUES ('vide@example.com', 'SHIPPED')");
+        StatementCountingDataSource.drainCount();
+
+        List<Order> orders = orderRepository.findByStatus("SHIPPED");
+
+        assertEquals(1, orders.size());
+        assertEquals(0, orders.get(0).getItems().size());
+        assertEquals(2, StatementCountingDataSource.drainCount());
+    }
+
+    @Test
+    void findPageWalksAllOrdersInDateAndIdOrder() {
+        insertOrders(25, "page@example.com");
+        // Même date pour plusieurs commandes : l'id départage
+        jdbcTemplate.update("UPDATE orders SET date = TIMESTAMP '2024-01-01 10:00:00' WHERE id % 3 = 0");
+
+        List<Long> seen = new ArrayList<>();
+        OrderCursor cursor = null;
+        List<Order> page;
+        do {
+            page = orderRepository.findPage(cursor, 7);
+            for (Order order : page) {
+                seen.add(order.getId());
+            }
+            if (!page.isEmpty()) {
+                Order last = page.get(page.size() - 1);
+                cursor = OrderCursor.decode(new OrderCursor(last.getDate(), last.getId()).encode());
+            }
+        } while (page.size() == 7);
+
+        List<Long> expected = jdbcTemplate.queryForList("SELECT id FROM orders ORDER BY date, id", Long.class);
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void streamAllAssemblesOrdersFromJoinedRows() {
+        insertOrders(30, "flux@example.com");
+        jdbcTemplate.update("INSERT INTO orders (email, status) VALUES ('vide@example.com', 'PENDING')");
+
+        List<Order> streamed = new ArrayList<>();
+        orderRepository.streamAll(streamed::add);
+
+        assertEquals(32, streamed.size());
+        assertEquals(1, streamed.get(0).getItems().size());
+        streamed.subList(1, 31).forEach(order -> assertEquals(2, order.getItems().size()));
+        assertEquals(0, streamed.get(31).getItems().size());
+    }
+
+    @Test
+    void saveInsertsItemsInOneBatchWithGeneratedKeys() {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            items.add(new OrderItem(null, null, (long) (i % 4) + 1, i + 1));
+        }
+        Order order = new Order(null, "batch@example.com", LocalDateTime.now(), "PENDING", items);
+        StatementCountingDataSource.drainCount();
+
+        orderRepository.save(order);
+
+        assertEquals(2, StatementCountingDataSource.drainCount());
+        assertEquals(50, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_item WHERE order_id = ?", Integer.class, order.getId()));
+        items.forEach(item -> assertNotNull(item.getId()));
+        assertEquals(50, items.stream().map(OrderItem::getId).distinct().count());
+    }
+
+    @Test
+    void saveExistingOrderDoesNotReinsertItems() {
+        Order order = orderRepository.findById(1L).orElseThrow();
+        order.setStatus("SHIPPED");
+
+        orderRepository.save(order);
+
+        assertEquals(1, orderRepository.findById(1L).orElseThrow().getItems().size());
+    }
+}
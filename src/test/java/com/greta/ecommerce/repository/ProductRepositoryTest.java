@@ -0,0 +1,143 @@
+package com.greta.ecommerce.repository;
+
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.entity.Product;
+import com.greta.ecommerce.exception.VersionConflictException;
+import com.greta.ecommerce.metrics.StatementCountingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductRepositoryTest {
+
+    private EmbeddedDatabase database;
+    private StatementCountingDataSource dataSource;
+    private ProductCache productCache;
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create(";LOCK_TIMEOUT=30000");
+        dataSource = new StatementCountingDataSource(database);
+        productCache = new ProductCache(100, 300);
+        productRepository = new ProductRepository(new JdbcTemplate(dataSource), productCache, event -> { });
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void catalogReadsAreServedFromCache() {
+        productRepository.findAll();
+        productRepository.findById(1L);
+        StatementCountingDataSource.drainCount();
+
+        assertEquals(4, productRepository.findAll().size());
+        assertEquals("iPhone 24", productRepository.findById(1L).orElseThrow().getName());
+
+        assertEquals(0, StatementCountingDataSource.drainCount());
+    }
+
+    @Test
+    void writesInvalidateCachedProducts() {
+        productRepository.findAll();
+        assertEquals(50, productRepository.findById(1L).orElseThrow().getStock());
+
+        productRepository.reserveStock(Map.of(1L, 5));
+        assertEquals(45, productRepository.findById(1L).orElseThrow().getStock());
+
+        Product product = productRepository.findById(2L).orElseThrow();
+        productRepository.update(new Product(2L, "Renommé", product.getDescription(),
+                product.getPrice(), product.getStock(), product.getImageUrl()));
+        assertTrue(productRepository.findAll().stream().anyMatch(p -> p.getName().equals("Renommé")));
+
+        productRepository.delete(4L);
+        assertTrue(productRepository.findById(4L).isEmpty());
+        assertEquals(3, productRepository.findAll().size());
+    }
+
+    // Éditions d'administration (lecture, modification, compare-and-set) concurrentes avec des
+    // réservations de commande : aucun verrou n'est pris en dehors des UPDATE, aucune écriture n'est perdue
+    @Test
+    void concurrentVersionedUpdatesLoseNoWrite() throws Exception {
+        int editors = 4;
+        int editsPerEditor = 25;
+        int checkouts = 100;
+        // Stock suffisant pour que les réservations réussissent quel que soit l'entrelacement
+        new JdbcTemplate(database).update("UPDATE product SET stock = 1000 WHERE id = 1");
+        ExecutorService executor = Executors.newFixedThreadPool(editors + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int e = 0; e < editors; e++) {
+            tasks.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < editsPerEditor; i++) {
+                    while (true) {
+                        Product read = productRepository.findById(1L).orElseThrow();
+                        Product edited = new Product(read.getId(), read.getName(), read.getDescription(),
+                                read.getPrice() + 10, read.getStock(), read.getImageUrl());
+                        try {
+                            productRepository.update(edited, read.getVersion());
+                            break;
+                        } catch (VersionConflictException conflict) {
+                            // Relecture puis nouvel essai
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            tasks.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < checkouts / 2; i++) {
+                    assertTrue(productRepository.reserveStock(Map.of(1L, 1)).isEmpty());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        assertEquals(2999.99 + editors * editsPerEditor * 10, productRepository.findById(1L).orElseThrow().getPrice(), 0.001);
+        assertEquals(1000 - checkouts, productRepository.findStock(1L).orElseThrow());
+        assertEquals(editors * editsPerEditor + checkouts, productRepository.findVersion(1L).orElseThrow());
+    }
+
+    @Test
+    void staleVersionIsRejectedWithCurrentVersion() {
+        Product product = productRepository.findById(2L).orElseThrow();
+        Product first = new Product(2L, "Première", product.getDescription(), product.getPrice(), product.getStock(), product.getImageUrl());
+        Product second = new Product(2L, "Seconde", product.getDescription(), product.getPrice(), product.getStock(), product.getImageUrl());
+
+        assertTrue(productRepository.update(first, product.getVersion()));
+        assertEquals(product.getVersion() + 1, first.getVersion());
+
+        VersionConflictException conflict = assertThrows(VersionConflictException.class,
+                () -> productRepository.update(second, product.getVersion()));
+        assertEquals(product.getVersion() + 1, conflict.getCurrentVersion());
+        assertEquals("Première", productRepository.findById(2L).orElseThrow().getName());
+        assertFalse(productRepository.update(new Product(99L, "Absent", null, 1.0, 1, null), 0L));
+    }
+}
@@ -0,0 +1,49 @@
+package com.greta.ecommerce.search;
+
+import com.greta.ecommerce.entity.Product;
+import com.greta.ecommerce.event.ProductChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(null);
+        index.index(new Product(1L, "Écouteurs sans fil", "Réduction de bruit active", 99.0, 10, null));
+        index.index(new Product(2L, "Casque audio", "Casque avec écouteurs intégrés et réduction de bruit", 199.0, 5, null));
+        index.index(new Product(3L, "Clavier mécanique", "Touches rétroéclairées", 89.0, 20, null));
+    }
+
+    @Test
+    void matchesWithoutAccentsAndRanksNameFirst() {
+        assertEquals(List.of(1L, 2L), index.rank("ecouteurs"));
+        assertEquals(List.of(3L), index.rank("MÉCANIQUE"));
+    }
+
+    @Test
+    void lastWordsCanBePrefixesAndAllWordsMustMatch() {
+        assertEquals(List.of(1L, 2L), index.rank("reduc bru"));
+        assertEquals(List.of(2L), index.rank("casque reduc"));
+        assertTrue(index.rank("clavier bruit").isEmpty());
+        assertTrue(index.rank("les et de").isEmpty());
+    }
+
+    @Test
+    void followsProductChanges() {
+        index.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, 3L,
+                new Product(3L, "Clavier sans fil", "Touches silencieuses", 89.0, 20, null)));
+        index.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.DELETED, 1L, null));
+
+        assertEquals(List.of(3L), index.rank("sans fil"));
+        assertTrue(index.rank("mecanique").isEmpty());
+        assertEquals(2, index.size());
+    }
+}
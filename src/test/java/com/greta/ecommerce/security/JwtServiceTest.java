@@ -0,0 +1,123 @@
+package com.greta.ecommerce.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    // Horloge avancée à la main, partagée par le parseur et le cache
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private final MutableClock clock = new MutableClock();
+    private final JwtService jwtService = new JwtService(SECRET, Duration.ofMinutes(10), 100, clock);
+
+    private static Authentication admin() {
+        return UsernamePasswordAuthenticationToken.authenticated("admin", null,
+                AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+    }
+
+    @Test
+    void issuedTokenAuthenticatesWithRolesAndIsCached() {
+        String token = jwtService.issue(admin());
+
+        Authentication authentication = jwtService.authenticate(token);
+
+        assertEquals("admin", authentication.getName());
+        assertEquals(List.of("ROLE_ADMIN"), List.copyOf(AuthorityUtils.authorityListToSet(authentication.getAuthorities())));
+        assertSame(authentication, jwtService.authenticate(token));
+    }
+
+    @Test
+    void tamperedOrForeignTokenIsRejected() {
+        String token = jwtService.issue(admin());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        JwtService other = new JwtService(Base64.getEncoder().encodeToString("another-secret-of-32-bytes-long!".getBytes()),
+                Duration.ofMinutes(10), 100, clock);
+
+        assertThrows(JwtException.class, () -> jwtService.authenticate(tampered));
+        assertThrows(JwtException.class, () -> jwtService.authenticate(other.issue(admin())));
+    }
+
+    // Le cache ne prolonge pas un jeton au-delà de son expiration
+    @Test
+    void cachedTokenExpiresWithTheToken() {
+        String token = jwtService.issue(admin());
+        jwtService.authenticate(token);
+
+        clock.advance(Duration.ofMinutes(11));
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.authenticate(token));
+    }
+
+    @Test
+    void filterAuthenticatesBearerAndRejectsInvalidToken() throws Exception {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService);
+        Authentication[] seen = new Authentication[1];
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/stats/status");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.issue(admin()));
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                seen[0] = SecurityContextHolder.getContext().getAuthentication();
+            }
+        });
+        SecurityContextHolder.clearContext();
+        assertEquals("admin", seen[0].getName());
+
+        MockHttpServletRequest invalid = new MockHttpServletRequest("GET", "/api/admin/stats/status");
+        invalid.addHeader(HttpHeaders.AUTHORIZATION, "Bearer not-a-jwt");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(invalid, response, chain);
+        assertEquals(401, response.getStatus());
+        assertEquals("Bearer error=\"invalid_token\"", response.getHeader(HttpHeaders.WWW_AUTHENTICATE));
+        assertNull(chain.getRequest());
+    }
+}
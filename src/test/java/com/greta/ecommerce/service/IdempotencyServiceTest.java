@@ -0,0 +1,231 @@
+package com.greta.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.exception.StockException;
+import com.greta.ecommerce.metrics.StatementCountingDataSource;
+import com.greta.ecommerce.outbox.OrderOutbox;
+import com.greta.ecommerce.repository.IdempotentRequestRepository;
+import com.greta.ecommerce.repository.OrderItemRepository;
+import com.greta.ecommerce.repository.OrderOutboxRepository;
+import com.greta.ecommerce.repository.OrderRepository;
+import com.greta.ecommerce.repository.OrderStatsRepository;
+import com.greta.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringJUnitConfig(IdempotencyServiceTest.Config.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class IdempotencyServiceTest {
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({IdempotencyService.class, IdempotentRequestRepository.class, OrderService.class,
+            OrderStatsService.class, OrderStatsRepository.class,
+            OrderOutbox.class, OrderOutboxRepository.class, OrderRepository.class, OrderItemRepository.class, ProductRepository.class, ProductCache.class})
+    static class Config {
+        @Bean
+        DataSource dataSource() {
+            return new StatementCountingDataSource(TestDatabase.create(";LOCK_TIMEOUT=30000"));
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private IdempotentRequestRepository idempotentRequestRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE product SET stock = 100 WHERE id = 1");
+    }
+
+    private static Order order(int quantity) {
+        List<OrderItem> items = new ArrayList<>();
+        items.add(new OrderItem(null, null, 1L, quantity));
+        Order order = new Order();
+        order.setEmail("retry@example.com");
+        order.setItems(items);
+        return order;
+    }
+
+    private ResponseEntity<?> submit(IdempotencyService service, String key, Order order) {
+        return service.execute(key, order, () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.ok(orderService.createOrder(order));
+        });
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = 1", Integer.class);
+    }
+
+    private int orders() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE email = 'retry@example.com'", Integer.class);
+    }
+
+    @Test
+    void retryReplaysFirstResponseWithoutTouchingDatabase() throws Exception {
+        ResponseEntity<?> first = submit(idempotencyService, "key-1", order(2));
+        Order created = (Order) first.getBody();
+        StatementCountingDataSource.drainCount();
+
+        ResponseEntity<?> retry = submit(idempotencyService, "key-1", order(2));
+
+        assertEquals(0, StatementCountingDataSource.drainCount());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(created.getId(), objectMapper.readValue((String) retry.getBody(), Order.class).getId());
+        assertEquals(1, executions.get());
+        assertEquals(1, orders());
+        assertEquals(98, stock());
+    }
+
+    @Test
+    void storedResponseSurvivesMemoryLoss() {
+        submit(idempotencyService, "key-2", order(2));
+
+        // Nouvelle instance (redémarrage, autre nœud) : la réponse est relue en base
+        IdempotencyService restarted = new IdempotencyService(idempotentRequestRepository, objectMapper,
+                transactionManager, 100, 24);
+        ResponseEntity<?> retry = submit(restarted, "key-2", order(2));
+
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(1, executions.get());
+        assertEquals(1, orders());
+    }
+
+    @Test
+    void keyReusedWithAnotherBodyIsRejected() {
+        submit(idempotencyService, "key-3", order(2));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> submit(idempotencyService, "key-3", order(5)));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+        assertEquals(98, stock());
+    }
+
+    @Test
+    void failedRequestIsNotRemembered() {
+        assertThrows(StockException.class, () -> submit(idempotencyService, "key-4", order(500)));
+        jdbcTemplate.update("UPDATE product SET stock = 1000 WHERE id = 1");
+
+        ResponseEntity<?> retry = submit(idempotencyService, "key-4", order(500));
+
+        assertInstanceOf(Order.class, retry.getBody());
+        assertEquals(2, executions.get());
+        assertEquals(500, stock());
+    }
+
+    // Ligne expirée que la purge horaire n'a pas encore supprimée : la clé est réutilisable
+    @Test
+    void expiredKeyNotYetPurgedIsReplaced() {
+        jdbcTemplate.update("INSERT INTO idempotent_request (request_key, request_hash, status_code, response_body, created_at) "
+                + "VALUES ('key-6', 'expired', 201, '{}', ?)", Timestamp.valueOf(LocalDateTime.now().minusHours(48)));
+
+        ResponseEntity<?> first = submit(idempotencyService, "key-6", order(2));
+        ResponseEntity<?> retry = submit(idempotencyService, "key-6", order(2));
+
+        assertInstanceOf(Order.class, first.getBody());
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(1, executions.get());
+        assertEquals(98, stock());
+    }
+
+    @Test
+    void duplicateKeyRaisedByActionIsNotRemembered() {
+        assertThrows(DuplicateKeyException.class, () -> idempotencyService.execute("key-7", order(1), () -> {
+            throw new DuplicateKeyException("duplicate");
+        }));
+
+        ResponseEntity<?> retry = submit(idempotencyService, "key-7", order(1));
+
+        assertInstanceOf(Order.class, retry.getBody());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void concurrentDuplicatesCoalesce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ResponseEntity<?>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return submit(idempotencyService, "key-5", order(1));
+            }));
+        }
+        start.countDown();
+        for (Future<ResponseEntity<?>> result : results) {
+            assertEquals(HttpStatus.OK, result.get().getStatusCode());
+        }
+        executor.shutdown();
+
+        assertEquals(1, executions.get());
+        assertEquals(1, orders());
+        assertEquals(99, stock());
+    }
+}
@@ -0,0 +1,145 @@
+package com.greta.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.dto.OrderTicket;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.exception.OrderQueueFullException;
+import com.greta.ecommerce.exception.StockException;
+import com.greta.ecommerce.outbox.OrderOutbox;
+import com.greta.ecommerce.repository.OrderItemRepository;
+import com.greta.ecommerce.repository.OrderOutboxRepository;
+import com.greta.ecommerce.repository.OrderRepository;
+import com.greta.ecommerce.repository.OrderStatsRepository;
+import com.greta.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringJUnitConfig(OrderIngestionServiceTest.Config.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderIngestionServiceTest {
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({OrderService.class, OrderStatsService.class, OrderStatsRepository.class,
+            OrderOutbox.class, OrderOutboxRepository.class,
+            OrderRepository.class, OrderItemRepository.class, ProductRepository.class, ProductCache.class})
+    static class Config {
+        @Bean
+        EmbeddedDatabase dataSource() {
+            return TestDatabase.create();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(EmbeddedDatabase dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EmbeddedDatabase dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private OrderIngestionService ingestion;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE product SET stock = 10 WHERE id = 1");
+        // Le writer n'est démarré qu'à la demande, pour contrôler le remplissage de la file
+        ingestion = new OrderIngestionService(orderService, 3, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestion.stop();
+    }
+
+    private static Order order(long productId, int quantity) {
+        List<OrderItem> items = new ArrayList<>();
+        items.add(new OrderItem(null, null, productId, quantity));
+        Order order = new Order();
+        order.setEmail("async@example.com");
+        order.setItems(items);
+        return order;
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = ?", Integer.class, productId);
+    }
+
+    @Test
+    void stockIsReservedOnSubmitAndOrdersArePersistedInBatches() {
+        List<OrderTicket> tickets = List.of(
+                ingestion.submit(order(1, 2)), ingestion.submit(order(1, 3)), ingestion.submit(order(1, 1)));
+
+        assertEquals(4, stock(1));
+        assertEquals(0, countOrders());
+
+        ingestion.start();
+        ingestion.stop(); // vide la file avant de rendre la main
+
+        assertEquals(3, countOrders());
+        for (OrderTicket ticket : tickets) {
+            OrderTicket current = ingestion.getTicket(ticket.getTicket()).orElseThrow();
+            assertEquals(OrderTicket.Status.PERSISTED, current.getStatus());
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM order_item WHERE order_id = ?", Integer.class, current.getOrderId()));
+        }
+        assertEquals(4, stock(1));
+    }
+
+    @Test
+    void fullQueueIsRejectedWithoutHoldingStock() {
+        ingestion.submit(order(1, 1));
+        ingestion.submit(order(1, 1));
+        ingestion.submit(order(1, 1));
+
+        assertThrows(OrderQueueFullException.class, () -> ingestion.submit(order(1, 1)));
+        assertEquals(7, stock(1));
+    }
+
+    @Test
+    void insufficientStockIsRejectedSynchronously() {
+        assertThrows(StockException.class, () -> ingestion.submit(order(1, 11)));
+
+        assertEquals(0, ingestion.getQueueSize());
+        assertEquals(10, stock(1));
+    }
+
+    private int countOrders() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE email = 'async@example.com'", Integer.class);
+    }
+}
@@ -0,0 +1,191 @@
+package com.greta.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.exception.StockException;
+import com.greta.ecommerce.outbox.OrderOutbox;
+import com.greta.ecommerce.repository.OrderItemRepository;
+import com.greta.ecommerce.repository.OrderOutboxRepository;
+import com.greta.ecommerce.repository.OrderRepository;
+import com.greta.ecommerce.repository.OrderStatsRepository;
+import com.greta.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringJUnitConfig(OrderServiceTest.Config.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderServiceTest {
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({OrderService.class, OrderStatsService.class, OrderStatsRepository.class,
+            OrderOutbox.class, OrderOutboxRepository.class,
+            OrderRepository.class, OrderItemRepository.class, ProductRepository.class, ProductCache.class})
+    static class Config {
+        @Bean
+        EmbeddedDatabase dataSource() {
+            return TestDatabase.create(";LOCK_TIMEOUT=30000");
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(EmbeddedDatabase dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EmbeddedDatabase dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE product SET stock = 100 WHERE id = 1");
+        jdbcTemplate.update("UPDATE product SET stock = 1000 WHERE id = 2");
+        jdbcTemplate.update("UPDATE product SET stock = 1 WHERE id = 3");
+    }
+
+    private static Order order(long... productAndQuantity) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < productAndQuantity.length; i += 2) {
+            items.add(new OrderItem(null, null, productAndQuantity[i], (int) productAndQuantity[i + 1]));
+        }
+        Order order = new Order();
+        order.setEmail("client@example.com");
+        order.setItems(items);
+        return order;
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = ?", Integer.class, productId);
+    }
+
+    @Test
+    void createOrderDecrementsStockExactlyOnce() {
+        orderService.createOrder(order(1, 2, 2, 5, 1, 1));
+
+        assertEquals(97, stock(1));
+        assertEquals(995, stock(2));
+    }
+
+    @Test
+    void createOrderIsAllOrNothing() {
+        assertThrows(StockException.class, () -> orderService.createOrder(order(1, 10, 3, 2)));
+
+        assertEquals(100, stock(1));
+        assertEquals(1, stock(3));
+    }
+
+    @Test
+    void cancelOrderRestoresStock() {
+        Order created = orderService.createOrder(order(1, 4));
+
+        orderService.cancelOrder(created.getId());
+
+        assertEquals(100, stock(1));
+    }
+
+    @Test
+    void concurrentCancelsRestoreStockOnce() throws Exception {
+        Order created = orderService.createOrder(order(1, 4));
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    orderService.cancelOrder(created.getId());
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int cancelled = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                cancelled++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, cancelled);
+        assertEquals(100, stock(1));
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        int threads = 16;
+        int attempts = 60;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            // Ordre des lignes alterné pour vérifier l'absence d'interblocage
+            Order order = i % 2 == 0 ? order(1, 3, 2, 1) : order(2, 1, 1, 3);
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    orderService.createOrder(order);
+                    return true;
+                } catch (StockException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(33, succeeded);
+        assertEquals(100 - 3 * succeeded, stock(1));
+        assertEquals(1000 - succeeded, stock(2));
+        assertEquals(succeeded, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE email = 'client@example.com'", Integer.class));
+    }
+}
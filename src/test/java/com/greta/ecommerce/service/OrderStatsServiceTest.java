@@ -0,0 +1,201 @@
+package com.greta.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.dto.OrderStats;
+import com.greta.ecommerce.entity.Order;
+import com.greta.ecommerce.entity.OrderItem;
+import com.greta.ecommerce.outbox.OrderOutbox;
+import com.greta.ecommerce.repository.OrderItemRepository;
+import com.greta.ecommerce.repository.OrderOutboxRepository;
+import com.greta.ecommerce.repository.OrderRepository;
+import com.greta.ecommerce.repository.OrderStatsRepository;
+import com.greta.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringJUnitConfig(OrderStatsServiceTest.Config.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = "ecommerce.stats.rebuild-chunk-size=3")
+class OrderStatsServiceTest {
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({OrderService.class, OrderStatsService.class, OrderStatsRepository.class,
+            OrderOutbox.class, OrderOutboxRepository.class,
+            OrderRepository.class, OrderItemRepository.class, ProductRepository.class, ProductCache.class})
+    static class Config {
+        @Bean
+        EmbeddedDatabase dataSource() {
+            return TestDatabase.create(";LOCK_TIMEOUT=30000");
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(EmbeddedDatabase dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EmbeddedDatabase dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE product SET stock = 10000");
+    }
+
+    private static Order order(long... productAndQuantity) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < productAndQuantity.length; i += 2) {
+            items.add(new OrderItem(null, null, productAndQuantity[i], (int) productAndQuantity[i + 1]));
+        }
+        Order order = new Order();
+        order.setEmail("client@example.com");
+        order.setItems(items);
+        return order;
+    }
+
+    // statut -> [commandes, quantité]
+    private Map<String, List<Long>> byStatus() {
+        return orderStatsService.getByStatus(null, null).stream()
+                .collect(Collectors.toMap(OrderStats::getStatus, s -> List.of(s.getOrders(), s.getQuantity())));
+    }
+
+    private List<String> snapshot() {
+        List<String> rows = new ArrayList<>();
+        orderStatsService.getByStatus(null, null).forEach(s -> rows.add(s.getStatus() + "=" + s.getOrders() + "/" + s.getQuantity()));
+        orderStatsService.getDaily(LocalDate.now().minusDays(1), LocalDate.now().plusDays(1), null)
+                .forEach(s -> rows.add(s.getDay() + " " + s.getStatus() + "=" + s.getOrders() + "/" + s.getQuantity()));
+        orderStatsService.getTopProducts(null, 100)
+                .forEach(s -> rows.add("#" + s.getProductId() + "=" + s.getOrders() + "/" + s.getQuantity()));
+        return rows;
+    }
+
+    @Test
+    void writesUpdateAggregatesIncrementally() {
+        Map<String, List<Long>> before = byStatus();
+        long pendingOrders = before.getOrDefault("PENDING", List.of(0L, 0L)).get(0);
+        long pendingQuantity = before.getOrDefault("PENDING", List.of(0L, 0L)).get(1);
+
+        Order shipped = orderService.createOrder(order(1, 2, 2, 3, 1, 1));
+        Order cancelled = orderService.createOrder(order(2, 4));
+        orderService.updateOrderStatus(shipped.getId(), "SHIPPED");
+        orderService.cancelOrder(cancelled.getId());
+
+        Map<String, List<Long>> after = byStatus();
+        assertEquals(List.of(pendingOrders, pendingQuantity), after.getOrDefault("PENDING", List.of(0L, 0L)));
+        assertEquals(List.of(1L, 6L), after.get("SHIPPED"));
+        assertEquals(List.of(1L, 4L), after.get("CANCELLED"));
+
+        OrderStats product2 = orderStatsService.getTopProducts("SHIPPED", 10).stream()
+                .filter(s -> s.getProductId() == 2L).findFirst().orElseThrow();
+        assertEquals(1, product2.getOrders());
+        assertEquals(3, product2.getQuantity());
+    }
+
+    @Test
+    void rebuildMatchesIncrementalAggregates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Order>> created = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            long product = 1 + i % 3;
+            created.add(executor.submit(() -> orderService.createOrder(order(product, 1 + product, 1, 1))));
+        }
+        for (int i = 0; i < created.size(); i++) {
+            Order order = created.get(i).get();
+            if (i % 4 == 0) {
+                orderService.cancelOrder(order.getId());
+            } else if (i % 4 == 1) {
+                orderService.updateOrderStatus(order.getId(), "SHIPPED");
+            }
+        }
+        executor.shutdown();
+        List<String> incremental = snapshot();
+
+        Map<String, Object> report = orderStatsService.rebuild();
+
+        assertEquals(incremental, snapshot());
+        assertEquals(41L, report.get("orders"));
+    }
+
+    // La reconstruction ne bloque pas les commandes et ne perd ni ne double aucun de leurs deltas
+    @Test
+    void rebuildDuringWritesKeepsAggregatesExact() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            long product = 1 + i % 3;
+            int n = i;
+            writers.add(executor.submit(() -> {
+                Order order = orderService.createOrder(order(product, 1));
+                if (n % 3 == 0) {
+                    orderService.updateOrderStatus(order.getId(), "SHIPPED");
+                }
+            }));
+            if (i % 20 == 10) {
+                orderStatsService.rebuild();
+            }
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+        List<String> afterWrites = snapshot();
+
+        Map<String, Object> report = orderStatsService.rebuild();
+
+        assertEquals(0L, report.get("corrected"));
+        assertEquals(afterWrites, snapshot());
+    }
+
+    @Test
+    void rebuildPicksUpDirectDatabaseChanges() {
+        Order order = orderService.createOrder(order(3, 2));
+        jdbcTemplate.update("UPDATE orders SET status = 'DELIVERED' WHERE id = ?", order.getId());
+        assertEquals(null, byStatus().get("DELIVERED"));
+
+        orderStatsService.rebuild();
+
+        assertEquals(List.of(1L, 2L), byStatus().get("DELIVERED"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.greta.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.dto.ImportReport;
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.service.ProductImportService.Format;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductImportServiceTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ProductRepository productRepository;
+    private ProductImportService productImportService;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        jdbcTemplate = new JdbcTemplate(database);
+        productRepository = new ProductRepository(jdbcTemplate, new ProductCache(100, 300), event -> { });
+        productImportService = new ProductImportService(productRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(),
+                new DataSourceTransactionManager(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void csvImportKeepsValidRowsAndReportsInvalidOnes() throws IOException {
+        String csv = """
+                name,description,price,stock,imageUrl
+                Clavier,"Mécanique, AZERTY",89.9,10,
+                ,Sans nom,10,1,
+                Souris,,abc,5,
+                Écran,"27 pouces \"\"4K\"\"",349,3,https://images.example.com/ecran.jpg
+                Câble,,5,-2,
+                """;
+
+        ImportReport report = productImportService.importProducts(body(csv), Format.CSV);
+
+        assertEquals(5, report.getRowsRead());
+        assertEquals(2, report.getSucceeded());
+        assertEquals(3, report.getFailed());
+        assertEquals(List.of(3L, 4L, 6L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+        assertEquals(6, productRepository.findAll().size());
+        assertEquals("27 pouces \"4K\"", jdbcTemplate.queryForObject(
+                "SELECT description FROM product WHERE name = 'Écran'", String.class));
+    }
+
+    @Test
+    void ndjsonImportReportsMalformedLines() throws IOException {
+        String ndjson = """
+                {"name":"Casque","price":59.0,"stock":4}
+                {"name":"Casque",
+                {"name":"Enceinte","price":0,"stock":4}
+                """;
+
+        ImportReport report = productImportService.importProducts(body(ndjson), Format.NDJSON);
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(1, report.getSucceeded());
+        assertEquals(List.of(2L, 3L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+    }
+
+    @Test
+    void stockAdjustmentsRejectUnknownProductsAndNegativeStock() throws IOException {
+        String csv = """
+                productId,delta
+                1,10
+                2,-1000
+                99,5
+                3,-5
+                """;
+
+        ImportReport report = productImportService.importStockAdjustments(body(csv), Format.CSV);
+
+        assertEquals(2, report.getSucceeded());
+        assertEquals(List.of(3L, 4L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+        assertEquals(60, productRepository.findById(1L).orElseThrow().getStock());
+    }
+
+    // Les largeurs de colonnes sont vérifiées avant d'atteindre la base
+    @Test
+    void oversizedFieldsAreRejectedByValidation() throws IOException {
+        String ndjson = "{\"name\":\"" + "x".repeat(101) + "\",\"price\":5,\"stock\":1}\n"
+                + "{\"name\":\"Tapis\",\"price\":1000000000,\"stock\":1}\n"
+                + "{\"name\":\"Tapis\",\"price\":5,\"stock\":1}\n";
+
+        ImportReport report = productImportService.importProducts(body(ndjson), Format.NDJSON);
+
+        assertEquals(1, report.getSucceeded());
+        assertEquals(List.of(1L, 2L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+    }
+
+    // Une ligne refusée par la base n'entraîne pas le rejet du reste de son lot
+    @Test
+    void databaseErrorRejectsOnlyTheFaultyRow() throws IOException {
+        String csv = """
+                productId,delta
+                1,10
+                2,2147483647
+                3,5
+                """;
+
+        ImportReport report = productImportService.importStockAdjustments(body(csv), Format.CSV);
+
+        assertEquals(2, report.getSucceeded());
+        assertEquals(List.of(3L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+        assertEquals(60, productRepository.findById(1L).orElseThrow().getStock());
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
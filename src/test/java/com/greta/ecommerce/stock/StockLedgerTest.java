@@ -0,0 +1,230 @@
+package com.greta.ecommerce.stock;
+
+import com.greta.ecommerce.TestDatabase;
+import com.greta.ecommerce.cache.ProductCache;
+import com.greta.ecommerce.dto.StockAdjustment;
+import com.greta.ecommerce.event.ProductChangedEvent;
+import com.greta.ecommerce.repository.ProductRepository;
+import com.greta.ecommerce.repository.StockLedgerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ProductRepository productRepository;
+    private StockLedger ledger;
+    // Exécuté juste après chaque lecture du stock en base par le registre
+    private volatile Runnable afterStockRead;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        jdbcTemplate = new JdbcTemplate(database);
+        productRepository = new ProductRepository(jdbcTemplate, new ProductCache(100, 300), event -> {
+            if (ledger != null && event instanceof ProductChangedEvent changed) {
+                ledger.onProductChanged(changed);
+            }
+        }) {
+            @Override
+            public Optional<Integer> findStock(Long id) {
+                Optional<Integer> stock = super.findStock(id);
+                Runnable hook = afterStockRead;
+                if (hook != null) {
+                    hook.run();
+                }
+                return stock;
+            }
+        };
+        jdbcTemplate.update("UPDATE product SET stock = 100 WHERE id = 1");
+        ledger = newLedger();
+        ledger.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.halt(false);
+        database.shutdown();
+    }
+
+    private StockLedger newLedger() {
+        // Pas de report périodique pendant les tests : reconcile() est appelé explicitement
+        return new StockLedger(productRepository, new StockLedgerRepository(jdbcTemplate),
+                new DataSourceTransactionManager(database), directory.toString(), 3_600_000, true);
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = ?", Integer.class, productId);
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return ledger.reserve(Map.of(1L, 1, 2L, 1)).isEmpty();
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(45, succeeded); // produit 2 : 45 en stock
+        assertEquals(100 - 45, ledger.available(1L));
+        assertEquals(0, ledger.available(2L));
+        assertEquals(100, stock(1)); // rien en base avant la réconciliation
+
+        ledger.reconcile();
+
+        assertEquals(55, stock(1));
+        assertEquals(0, stock(2));
+    }
+
+    @Test
+    void journalIsReplayedAfterCrash() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ledger.reserve(Map.of(1L, 2)).isEmpty());
+        }
+        ledger.release(Map.of(1L, 1));
+        ledger.halt(false);
+        // Écriture interrompue par l'arrêt brutal : la ligne incomplète doit être ignorée
+        Files.writeString(directory.resolve("current.log"), "99,1,-5",
+                StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+        assertEquals(100, stock(1));
+
+        ledger = newLedger();
+        ledger.start();
+
+        assertEquals(91, stock(1));
+        assertEquals(91, ledger.available(1L));
+        assertEquals(6, jdbcTemplate.queryForObject(
+                "SELECT last_seq FROM stock_ledger_checkpoint WHERE id = 1", Long.class));
+
+        // Un second redémarrage ne rejoue rien
+        ledger.halt(false);
+        ledger = newLedger();
+        ledger.start();
+        assertEquals(91, stock(1));
+    }
+
+    @Test
+    void reservationIsReleasedWhenTransactionRollsBack() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(ledger.reserve(Map.of(1L, 30)).isEmpty());
+            assertEquals(70, ledger.available(1L));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(100, ledger.available(1L));
+        ledger.reconcile();
+        assertEquals(100, stock(1));
+    }
+
+    // Un arrêt avant la validation de la commande ne doit rien laisser à rejouer
+    @Test
+    void reservationIsJournaledOnlyOnceTransactionCommits() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        Path current = directory.resolve("current.log");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(ledger.reserve(Map.of(1L, 30)).isEmpty());
+            assertEquals(70, ledger.available(1L));
+            try {
+                assertEquals(0, Files.size(current));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        assertEquals("1,1,-30\n", Files.readString(current, StandardCharsets.US_ASCII));
+        ledger.reconcile();
+        assertEquals(70, stock(1));
+        assertEquals(70, ledger.available(1L));
+    }
+
+    @Test
+    void counterIsReloadedAfterDirectStockChange() {
+        assertTrue(ledger.reserve(Map.of(1L, 5)).isEmpty());
+
+        productRepository.adjustStock(List.of(new StockAdjustment(1L, 50)));
+
+        assertEquals(145, ledger.available(1L));
+        ledger.reconcile();
+        assertEquals(145, stock(1));
+    }
+
+    // Le stock relu pendant un rechargement est dépassé par une réservation et un report :
+    // la réservation n'attend pas la lecture, et le compteur installé n'est pas celui de la lecture périmée
+    @Test
+    void reloadDoesNotBlockReservationsNorInstallStaleStock() throws Exception {
+        assertTrue(ledger.reserve(Map.of(1L, 5)).isEmpty());
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        afterStockRead = () -> {
+            afterStockRead = null;
+            read.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> refresh = executor.submit(() -> ledger.refresh(1L));
+        read.await();
+
+        assertTrue(ledger.reserve(Map.of(1L, 10)).isEmpty());
+        ledger.reconcile();
+        resume.countDown();
+        refresh.get();
+        executor.shutdown();
+
+        assertEquals(85, ledger.available(1L));
+        assertEquals(85, stock(1));
+    }
+
+    @Test
+    void unknownProductIsRejected() {
+        assertEquals(List.of(99L), ledger.reserve(Map.of(1L, 1, 99L, 1)));
+        assertEquals(100, ledger.available(1L));
+    }
+}